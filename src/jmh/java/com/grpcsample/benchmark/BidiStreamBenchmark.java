@@ -0,0 +1,69 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較 lock-free 與 synchronized 雙向串流 handler 的每秒訊息數
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BidiStreamBenchmark {
+    private static final int MESSAGES = 10_000;
+
+    @Param({"LOCK_FREE", "SYNCHRONIZED"})
+    public GreetingService.BidiMode bidiMode;
+
+    @Param({"IN_PROCESS", "NETTY_PLAINTEXT"})
+    public Transport transport;
+
+    @Param({"64"})
+    public int inboundWindow;
+
+    private Transport.Endpoint endpoint;
+    private GreetingServiceGrpc.GreetingServiceStub asyncStub;
+    private final HelloRequest request = HelloRequest.newBuilder().setName("Benchmark User").build();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        GreetingService service = new GreetingService();
+        service.setBidiMode(bidiMode.name());
+        service.setBidiInboundWindow(inboundWindow);
+        endpoint = transport.start(service);
+        asyncStub = GreetingServiceGrpc.newStub(endpoint.channel());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        endpoint.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public HelloReply stream() {
+        GreetingServiceBenchmark.ReplyCollector collector = new GreetingServiceBenchmark.ReplyCollector(null);
+        StreamObserver<HelloRequest> requests = asyncStub.sayHellosBidirectional(collector);
+        for (int i = 0; i < MESSAGES; i++) {
+            requests.onNext(request);
+        }
+        requests.onCompleted();
+        return collector.done.join();
+    }
+}
@@ -0,0 +1,96 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.config.ServerExecutors;
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較 grpc.server.executor 各模式的 unary 吞吐量與延遲
+ *
+ * <p>blockMicros 模擬 handler 內阻塞的下游呼叫，0 表示純 CPU 的 handler。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class ExecutorBenchmark {
+
+    @Param({"DEFAULT", "VIRTUAL", "FIXED", "DIRECT"})
+    public ServerExecutors.Mode executorMode;
+
+    @Param({"0", "1000"})
+    public int blockMicros;
+
+    private Transport.Endpoint endpoint;
+    private ExecutorService executor;
+    private GreetingServiceGrpc.GreetingServiceBlockingStub stub;
+    private final HelloRequest request = HelloRequest.newBuilder().setName("Benchmark User").build();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        executor = ServerExecutors.create(executorMode, 0);
+        endpoint = Transport.NETTY_PLAINTEXT.start(
+                ServerInterceptors.intercept(new GreetingService(), new BlockingInterceptor(blockMicros)),
+                builder -> ServerExecutors.apply(builder, executorMode, executor));
+        stub = GreetingServiceGrpc.newBlockingStub(endpoint.channel());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        endpoint.close();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public HelloReply unary() {
+        return stub.sayHello(request);
+    }
+
+    /**
+     * 在 handler 執行前 sleep，模擬阻塞的下游呼叫
+     */
+    private static final class BlockingInterceptor implements ServerInterceptor {
+        private final Duration block;
+
+        BlockingInterceptor(int blockMicros) {
+            this.block = Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(blockMicros));
+        }
+
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+            if (!block.isZero()) {
+                try {
+                    Thread.sleep(block);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return next.startCall(call, headers);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloBatchReply;
+import com.grpcsample.grpc.HelloBatchRequest;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GreetingService 四種 RPC 的效能基準測試
+ *
+ * <p>Throughput 模式回報 ops/s，SampleTime 模式回報 p50/p99/p999 延遲，
+ * 搭配 build.gradle 中設定的 gc profiler 可取得每次操作的配置量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GreetingServiceBenchmark {
+
+    @Param({"IN_PROCESS", "NETTY_PLAINTEXT", "NETTY_TLS"})
+    public Transport transport;
+
+    @Param({"5"})
+    public int messagesPerStream;
+
+    private Transport.Endpoint endpoint;
+    private GreetingServiceGrpc.GreetingServiceBlockingStub blockingStub;
+    private GreetingServiceGrpc.GreetingServiceStub asyncStub;
+    private HelloRequest request;
+    private HelloBatchRequest batchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        endpoint = transport.start(new GreetingService());
+        blockingStub = GreetingServiceGrpc.newBlockingStub(endpoint.channel());
+        asyncStub = GreetingServiceGrpc.newStub(endpoint.channel());
+        request = HelloRequest.newBuilder()
+                .setName("Benchmark User")
+                .setReplyCount(messagesPerStream)
+                .build();
+        HelloBatchRequest.Builder batch = HelloBatchRequest.newBuilder();
+        for (int i = 0; i < messagesPerStream; i++) {
+            batch.addRequests(request);
+        }
+        batchRequest = batch.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        endpoint.close();
+    }
+
+    @Benchmark
+    public HelloReply unary() {
+        return blockingStub.sayHello(request);
+    }
+
+    /**
+     * 以一次 sayHelloBatch 處理 messagesPerStream 個名稱，與 unary 逐筆呼叫比較
+     */
+    @Benchmark
+    public HelloBatchReply batch() {
+        return blockingStub.sayHelloBatch(batchRequest);
+    }
+
+    @Benchmark
+    public void serverStream(Blackhole bh) {
+        Iterator<HelloReply> replies = blockingStub.sayHellosServerStream(request);
+        while (replies.hasNext()) {
+            bh.consume(replies.next());
+        }
+    }
+
+    @Benchmark
+    public HelloReply clientStream() {
+        ReplyCollector collector = new ReplyCollector(null);
+        StreamObserver<HelloRequest> requests = asyncStub.sayHellosClientStream(collector);
+        for (int i = 0; i < messagesPerStream; i++) {
+            requests.onNext(request);
+        }
+        requests.onCompleted();
+        return collector.done.join();
+    }
+
+    @Benchmark
+    public HelloReply bidirectional(Blackhole bh) {
+        ReplyCollector collector = new ReplyCollector(bh);
+        StreamObserver<HelloRequest> requests = asyncStub.sayHellosBidirectional(collector);
+        for (int i = 0; i < messagesPerStream; i++) {
+            requests.onNext(request);
+        }
+        requests.onCompleted();
+        return collector.done.join();
+    }
+
+    /**
+     * 收集回應並在串流結束時完成 future
+     */
+    static final class ReplyCollector implements StreamObserver<HelloReply> {
+        final CompletableFuture<HelloReply> done = new CompletableFuture<>();
+        private final Blackhole bh;
+        private HelloReply last;
+
+        ReplyCollector(Blackhole bh) {
+            this.bh = bh;
+        }
+
+        @Override
+        public void onNext(HelloReply value) {
+            if (bh != null) {
+                bh.consume(value);
+            }
+            last = value;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done.completeExceptionally(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            done.complete(last);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.client.ClientHttp2Settings;
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 高頻寬 server 串流在不同 HTTP/2 flow-control window 下的每秒訊息數
+ *
+ * <p>每次呼叫以 sayHellosServerStream 傳回 {@code MESSAGES} 筆約 {@code payloadSize} bytes 的回應。
+ * window 小於飛行中的資料量時 server 必須等待 WINDOW_UPDATE；{@code bdp=true} 時 window 由 grpc 自動放大。
+ * loopback 的 RTT 很小，跨區網路上 window 的影響會更明顯。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Http2WindowBenchmark {
+    private static final int MESSAGES = 2_000;
+
+    @Param({"65535", "1048576", "8388608"})
+    public int window;
+
+    @Param({"false", "true"})
+    public boolean bdp;
+
+    @Param({"1024", "65536"})
+    public int payloadSize;
+
+    private Server server;
+    private ManagedChannel channel;
+    private GreetingServiceGrpc.GreetingServiceBlockingStub stub;
+    private HelloRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LeakDetection.install();
+        NettyServerBuilder serverBuilder = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                .addService(new GreetingService())
+                .maxInboundMessageSize(16 * 1024 * 1024);
+        if (bdp) {
+            serverBuilder.initialFlowControlWindow(window);
+        } else {
+            serverBuilder.flowControlWindow(window);
+        }
+        server = serverBuilder.build().start();
+
+        ClientHttp2Settings settings = new ClientHttp2Settings(window, bdp, 16 * 1024 * 1024, 8192);
+        channel = settings.apply(NettyChannelBuilder.forAddress("127.0.0.1", server.getPort()))
+                .usePlaintext()
+                .build();
+        stub = GreetingServiceGrpc.newBlockingStub(channel);
+        request = HelloRequest.newBuilder()
+                .setName("x".repeat(payloadSize))
+                .setReplyCount(MESSAGES)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        LeakDetection.assertNoLeaks();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public long serverStream() {
+        long bytes = 0;
+        Iterator<HelloReply> replies = stub.sayHellosServerStream(request);
+        while (replies.hasNext()) {
+            bytes += replies.next().getMessage().length();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,83 @@
+package com.grpcsample.benchmark;
+
+import io.grpc.netty.shaded.io.netty.buffer.ByteBuf;
+import io.grpc.netty.shaded.io.netty.buffer.UnpooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.util.ResourceLeakDetector;
+import io.grpc.netty.shaded.io.netty.util.ResourceLeakDetectorFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 以 {@code -PleakCheck} 執行 jmh 時，讓任何未 release 的 Netty buffer 使 benchmark 失敗
+ *
+ * <p>{@link #install()} 必須在第一個 ByteBuf 建立前呼叫，之後每個 buffer 都以 PARANOID 等級追蹤。
+ * Netty 只在洩漏的物件被 GC 回收後、下一次配置 buffer 時才回報，因此 {@link #assertNoLeaks()}
+ * 會先觸發 GC 再配置幾個 buffer。
+ */
+public final class LeakDetection {
+    static final boolean ENABLED = Boolean.getBoolean("grpcsample.leakCheck");
+
+    private static final AtomicInteger leaks = new AtomicInteger();
+    private static volatile boolean installed;
+
+    private LeakDetection() {
+    }
+
+    public static synchronized void install() {
+        if (!ENABLED || installed) {
+            return;
+        }
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new CountingFactory());
+        installed = true;
+    }
+
+    public static void assertNoLeaks() {
+        if (!installed) {
+            return;
+        }
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            // 追蹤新的 buffer 時才會處理已回收物件的 reference queue
+            ByteBuf probe = UnpooledByteBufAllocator.DEFAULT.directBuffer(1);
+            probe.release();
+        }
+        int count = leaks.get();
+        if (count > 0) {
+            throw new IllegalStateException(count + " leaked Netty buffer(s), see the LEAK reports above");
+        }
+    }
+
+    private static final class CountingFactory extends ResourceLeakDetectorFactory {
+        @Override
+        @SuppressWarnings("deprecation")
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval,
+                                                                  long maxActive) {
+            return new CountingDetector<>(resource, samplingInterval);
+        }
+    }
+
+    private static final class CountingDetector<T> extends ResourceLeakDetector<T> {
+        CountingDetector(Class<T> resource, int samplingInterval) {
+            super(resource, samplingInterval);
+        }
+
+        @Override
+        protected void reportTracedLeak(String resourceType, String records) {
+            leaks.incrementAndGet();
+            super.reportTracedLeak(resourceType, records);
+        }
+
+        @Override
+        protected void reportUntracedLeak(String resourceType) {
+            leaks.incrementAndGet();
+            super.reportUntracedLeak(resourceType);
+        }
+    }
+}
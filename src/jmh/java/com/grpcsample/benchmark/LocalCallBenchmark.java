@@ -0,0 +1,67 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloBatchReply;
+import com.grpcsample.grpc.HelloBatchRequest;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一個 JVM 內的呼叫延遲：in-process (傳參考 / 序列化) 與 loopback Netty (明文 / TLS) 比較
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalCallBenchmark {
+
+    @Param({"IN_PROCESS", "IN_PROCESS_SERIALIZED", "NETTY_PLAINTEXT", "NETTY_TLS"})
+    public Transport transport;
+
+    // sayHelloBatch 的名稱數，決定訊息大小
+    @Param({"100"})
+    public int batchSize;
+
+    private Transport.Endpoint endpoint;
+    private GreetingServiceGrpc.GreetingServiceBlockingStub stub;
+    private final HelloRequest request = HelloRequest.newBuilder().setName("Local User").build();
+    private HelloBatchRequest batchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        endpoint = transport.start(new GreetingService());
+        stub = GreetingServiceGrpc.newBlockingStub(endpoint.channel());
+        HelloBatchRequest.Builder batch = HelloBatchRequest.newBuilder();
+        for (int i = 0; i < batchSize; i++) {
+            batch.addRequests(HelloRequest.newBuilder().setName("Local User " + i));
+        }
+        batchRequest = batch.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        endpoint.close();
+    }
+
+    @Benchmark
+    public HelloReply unary() {
+        return stub.sayHello(request);
+    }
+
+    @Benchmark
+    public HelloBatchReply batch() {
+        return stub.sayHelloBatch(batchRequest);
+    }
+}
@@ -0,0 +1,130 @@
+package com.grpcsample.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.interceptor.LoggingServerInterceptor;
+import com.grpcsample.service.GreetingService;
+import com.grpcsample.util.LogSampler;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較同步 FILE appender 與 logback-prod.xml 使用的非同步 appender，
+ * 以及逐筆記錄與抽樣記錄對 unary 吞吐量的影響
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+public class LoggingBenchmark {
+
+    @Param({"SYNC", "ASYNC"})
+    public String appender;
+
+    @Param({"1", "100"})
+    public int sampleRate;
+
+    private Server server;
+    private ManagedChannel channel;
+    private GreetingServiceGrpc.GreetingServiceBlockingStub stub;
+    private HelloRequest request;
+    private File logDir;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() throws Exception {
+        logDir = Files.createTempDirectory("logging-bench").toFile();
+        configureLogback(new File(logDir, "grpc-sample.log"));
+
+        String name = "logging-bench-" + UUID.randomUUID();
+        server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(new GreetingService(),
+                        new LoggingServerInterceptor(new LogSampler(sampleRate))))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        stub = GreetingServiceGrpc.newBlockingStub(channel);
+        request = HelloRequest.newBuilder().setName("Benchmark User").build();
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        for (File file : logDir.listFiles()) {
+            file.delete();
+        }
+        logDir.delete();
+    }
+
+    @Benchmark
+    public HelloReply unary() {
+        return stub.sayHello(request);
+    }
+
+    /**
+     * 只保留 FILE 輸出，設定與 logback.xml / logback-prod.xml 相同
+     */
+    private void configureLogback(File logFile) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setName("FILE");
+        file.setFile(logFile.getAbsolutePath());
+        file.setEncoder(encoder);
+        file.setImmediateFlush("SYNC".equals(appender));
+        file.start();
+
+        Appender<ILoggingEvent> sink = file;
+        if ("ASYNC".equals(appender)) {
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setName("ASYNC_FILE");
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.setNeverBlock(false);
+            async.addAppender(file);
+            async.start();
+            sink = async;
+        }
+
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.WARN);
+        root.addAppender(sink);
+        context.getLogger("com.grpcsample").setLevel(Level.INFO);
+    }
+}
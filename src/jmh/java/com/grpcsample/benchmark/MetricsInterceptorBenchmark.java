@@ -0,0 +1,100 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.metrics.GrpcServerMetrics;
+import com.grpcsample.metrics.MetricsServerInterceptor;
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 量測 MetricsServerInterceptor 對單一 unary 呼叫增加的成本 (不含傳輸層)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class MetricsInterceptorBenchmark {
+
+    private MetricsServerInterceptor interceptor;
+    private ServerCallHandler<HelloRequest, HelloReply> handler;
+    private final Metadata headers = new Metadata();
+    private final HelloRequest request = HelloRequest.getDefaultInstance();
+    private final HelloReply reply = HelloReply.getDefaultInstance();
+
+    @Setup
+    public void setUp() {
+        interceptor = new MetricsServerInterceptor(new GrpcServerMetrics());
+        handler = (call, headers) -> new ServerCall.Listener<>() {
+            @Override
+            public void onHalfClose() {
+                call.sendMessage(reply);
+                call.close(Status.OK, new Metadata());
+            }
+        };
+    }
+
+    @Benchmark
+    public void baseline() {
+        runCall(handler.startCall(new NoopServerCall(), headers));
+    }
+
+    @Benchmark
+    public void metered() {
+        runCall(interceptor.interceptCall(new NoopServerCall(), headers, handler));
+    }
+
+    private void runCall(ServerCall.Listener<HelloRequest> listener) {
+        listener.onMessage(request);
+        listener.onHalfClose();
+        listener.onComplete();
+    }
+
+    private static final class NoopServerCall extends ServerCall<HelloRequest, HelloReply> {
+        @Override
+        public void request(int numMessages) {
+        }
+
+        @Override
+        public void sendHeaders(Metadata headers) {
+        }
+
+        @Override
+        public void sendMessage(HelloReply message) {
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public Attributes getAttributes() {
+            return Attributes.EMPTY;
+        }
+
+        @Override
+        public MethodDescriptor<HelloRequest, HelloReply> getMethodDescriptor() {
+            return GreetingServiceGrpc.getSayHelloMethod();
+        }
+    }
+}
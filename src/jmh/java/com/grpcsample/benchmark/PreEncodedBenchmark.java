@@ -0,0 +1,96 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.cache.CaffeineReplyCache;
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.marshal.EncodedMessage;
+import com.grpcsample.marshal.LazyMessage;
+import com.grpcsample.marshal.PreEncodedMarshallers;
+import com.grpcsample.service.GreetingService;
+import io.grpc.Drainable;
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比較 protobuf marshaller 與 {@link PreEncodedMarshallers} 在 sayHello 快取命中時的成本
+ *
+ * <p>{@code marshal*} 只測 server 端「解析請求、取得回應、寫出回應」的部分；
+ * {@code unary} 則是經過 Netty 的完整呼叫。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreEncodedBenchmark {
+
+    @Param({"false", "true"})
+    public boolean preEncoded;
+
+    private final HelloRequest request = HelloRequest.newBuilder().setName("Benchmark User").build();
+    private final byte[] requestBytes = request.toByteArray();
+
+    private final MethodDescriptor.Marshaller<HelloRequest> protoRequest =
+            ProtoUtils.marshaller(HelloRequest.getDefaultInstance());
+    private final MethodDescriptor.Marshaller<HelloReply> protoReply =
+            ProtoUtils.marshaller(HelloReply.getDefaultInstance());
+    private final MethodDescriptor.Marshaller<LazyMessage<HelloRequest>> lazyRequest =
+            PreEncodedMarshallers.lazy(HelloRequest.parser());
+    private final MethodDescriptor.Marshaller<EncodedMessage<HelloReply>> encodedReply =
+            PreEncodedMarshallers.encoded(HelloReply.getDefaultInstance());
+
+    private CaffeineReplyCache cache;
+    private Transport.Endpoint endpoint;
+    private GreetingServiceGrpc.GreetingServiceBlockingStub stub;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cache = new CaffeineReplyCache(1 << 20, 0);
+        GreetingService service = new GreetingService();
+        service.setReplyCache(cache);
+        endpoint = Transport.NETTY_PLAINTEXT.start(
+                preEncoded ? service.bindPreEncodedService() : service.bindService(), builder -> { });
+        stub = GreetingServiceGrpc.newBlockingStub(endpoint.channel());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        endpoint.close();
+    }
+
+    @Benchmark
+    public int marshalCacheHit() throws IOException {
+        if (preEncoded) {
+            LazyMessage<HelloRequest> lazy = lazyRequest.parse(new ByteArrayInputStream(requestBytes));
+            EncodedMessage<HelloReply> reply = EncodedMessage.ofBytes(
+                    cache.get(lazy.bytes(), () -> reply(lazy.get())).encoded());
+            return ((Drainable) encodedReply.stream(reply)).drainTo(OutputStream.nullOutputStream());
+        }
+        HelloRequest parsed = protoRequest.parse(new ByteArrayInputStream(requestBytes));
+        HelloReply reply = cache.get(parsed.toByteString(), () -> reply(parsed)).reply();
+        return ((Drainable) protoReply.stream(reply)).drainTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public HelloReply unary() {
+        return stub.sayHello(request);
+    }
+
+    private static HelloReply reply(HelloRequest request) {
+        return HelloReply.newBuilder().setMessage("Hello, " + request.getName() + "! - Backend Service - A").build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.client.ClientSslContexts;
+import com.grpcsample.config.TlsConfigHelper;
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重新連線風暴：多個執行緒不斷建立新連線、呼叫一次 sayHello 後關閉
+ *
+ * <p>{@code resumption=true} 時所有連線共用一個客戶端 SslContext，重新連線可恢復 session；
+ * false 時每條連線各建一個 context (等同每次建立新的 GrpcClient)，每次都是完整握手。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class TlsReconnectBenchmark {
+
+    @Param({"JDK", "OPENSSL"})
+    public SslProvider provider;
+
+    @Param({"false", "true"})
+    public boolean resumption;
+
+    @Param({"TLSv1.3"})
+    public String protocol;
+
+    private Server server;
+    private SslContext sharedClientContext;
+    private final HelloRequest request = HelloRequest.newBuilder().setName("Reconnect User").build();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LeakDetection.install();
+        TlsConfigHelper tls = Transport.serverTlsHelper();
+        tls.setProvider(provider.name());
+        tls.setProtocols(protocol);
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                .addService(new GreetingService())
+                .sslContext(tls.buildServerSslContext())
+                .build()
+                .start();
+        sharedClientContext = newClientContext();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        LeakDetection.assertNoLeaks();
+    }
+
+    @Benchmark
+    public HelloReply reconnect() throws Exception {
+        SslContext sslContext = resumption ? sharedClientContext : newClientContext();
+        ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", server.getPort())
+                .sslContext(sslContext)
+                .build();
+        try {
+            return GreetingServiceGrpc.newBlockingStub(channel).sayHello(request);
+        } finally {
+            channel.shutdownNow();
+        }
+    }
+
+    private SslContext newClientContext() throws IOException {
+        try (InputStream cert = new ClassPathResource("keystore/grpc-server-cert.pem").getInputStream()) {
+            return ClientSslContexts.forTrustedCert(cert, provider);
+        }
+    }
+}
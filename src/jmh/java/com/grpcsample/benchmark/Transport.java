@@ -0,0 +1,121 @@
+package com.grpcsample.benchmark;
+
+import com.grpcsample.client.ClientSslContexts;
+import com.grpcsample.client.NettyClientTransport;
+import com.grpcsample.config.TlsConfigHelper;
+import com.grpcsample.marshal.PreEncodedMarshallers;
+import io.grpc.BindableService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 基準測試使用的傳輸方式，負責建立對應的 server 與 channel
+ */
+public enum Transport {
+    // protobuf 訊息物件直接傳遞，不序列化
+    IN_PROCESS,
+    // in-process 但每個訊息都序列化與解析，與 grpc.server.in-process.pass-by-reference=false 相同
+    IN_PROCESS_SERIALIZED,
+    NETTY_PLAINTEXT,
+    NETTY_TLS;
+
+    /**
+     * 啟動的 server 與連線到它的 channel
+     */
+    public record Endpoint(Server server, ManagedChannel channel) {
+        public void close() throws InterruptedException {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            LeakDetection.assertNoLeaks();
+        }
+    }
+
+    public Endpoint start(BindableService service) throws Exception {
+        return start(service.bindService(), builder -> { });
+    }
+
+    /**
+     * @param customizer 在 build 前調整 server 設定，例如 executor
+     */
+    public Endpoint start(ServerServiceDefinition service, Consumer<ServerBuilder<?>> customizer) throws Exception {
+        LeakDetection.install();
+        switch (this) {
+            case IN_PROCESS:
+            case IN_PROCESS_SERIALIZED: {
+                String name = "bench-" + UUID.randomUUID();
+                InProcessServerBuilder builder = InProcessServerBuilder.forName(name);
+                customizer.accept(builder);
+                Server server = builder
+                        .addService(this == IN_PROCESS
+                                ? service
+                                : ServerInterceptors.useMarshalledMessages(service, PreEncodedMarshallers.bytes()))
+                        .build()
+                        .start();
+                ManagedChannel channel = InProcessChannelBuilder.forName(name).build();
+                return new Endpoint(server, channel);
+            }
+            case NETTY_PLAINTEXT: {
+                NettyServerBuilder builder = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                        .withChildOption(ChannelOption.ALLOCATOR, NettyClientTransport.allocator());
+                customizer.accept(builder);
+                Server server = builder
+                        .addService(service)
+                        .build()
+                        .start();
+                ManagedChannel channel = NettyChannelBuilder.forAddress("127.0.0.1", server.getPort())
+                        .withOption(ChannelOption.ALLOCATOR, NettyClientTransport.allocator())
+                        .usePlaintext()
+                        .build();
+                return new Endpoint(server, channel);
+            }
+            case NETTY_TLS: {
+                NettyServerBuilder builder = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                        .withChildOption(ChannelOption.ALLOCATOR, NettyClientTransport.allocator());
+                customizer.accept(builder);
+                Server server = builder
+                        .addService(service)
+                        .sslContext(serverTlsHelper().buildServerSslContext())
+                        .build()
+                        .start();
+                ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", server.getPort())
+                        .withOption(ChannelOption.ALLOCATOR, NettyClientTransport.allocator())
+                        .sslContext(clientSslContext())
+                        .build();
+                return new Endpoint(server, channel);
+            }
+            default:
+                throw new IllegalStateException("Unknown transport: " + this);
+        }
+    }
+
+    /**
+     * 使用與 application.properties 相同的 keystore 設定
+     */
+    static TlsConfigHelper serverTlsHelper() {
+        return new TlsConfigHelper(new ClassPathResource("keystore/grpc-server.p12"),
+                "changeit", "PKCS12", "grpcServer");
+    }
+
+    static SslContext clientSslContext() throws IOException {
+        try (InputStream cert = new ClassPathResource("keystore/grpc-server-cert.pem").getInputStream()) {
+            return ClientSslContexts.forTrustedCert(cert, ClientSslContexts.defaultProvider());
+        }
+    }
+}
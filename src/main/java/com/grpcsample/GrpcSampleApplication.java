@@ -1,27 +1,50 @@
 package com.grpcsample;
 
+import com.grpcsample.client.LocalServers;
+import com.grpcsample.compression.CompressionServerInterceptor;
+import com.grpcsample.config.KeystoreWatcher;
+import com.grpcsample.config.NettyTransportHelper;
+import com.grpcsample.config.ServerExecutors;
+import com.grpcsample.config.ServerHttp2Settings;
 import com.grpcsample.config.TlsConfigHelper;
+import com.grpcsample.drain.StreamDrainer;
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.interceptor.DeadlineServerInterceptor;
+import com.grpcsample.interceptor.LoggingServerInterceptor;
+import com.grpcsample.limit.ConcurrencyLimitServerInterceptor;
+import com.grpcsample.marshal.PreEncodedMarshallers;
+import com.grpcsample.metrics.GrpcServerMetrics;
+import com.grpcsample.metrics.MetricsServerInterceptor;
+import com.grpcsample.metrics.TlsHandshakeMetrics;
 import com.grpcsample.service.GreetingService;
-import io.grpc.ForwardingServerCallListener;
-import io.grpc.Grpc;
-import io.grpc.Metadata;
+import com.grpcsample.util.LogSampler;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
-import io.grpc.ServerCall;
-import io.grpc.ServerCallHandler;
 import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.health.v1.HealthCheckResponse;
+import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import io.grpc.protobuf.services.HealthStatusManager;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @SpringBootApplication
@@ -30,17 +53,26 @@ public class GrpcSampleApplication {
 
     public static void main(String[] args) throws IOException, InterruptedException {
         logger.info("Starting gRPC Sample Application");
-        ApplicationContext context = SpringApplication.run(GrpcSampleApplication.class, args);
+        TlsConfigHelper.preloadNativeLibrary();
+        ConfigurableApplicationContext context = SpringApplication.run(GrpcSampleApplication.class, args);
 
         // Get the server bean
         GrpcServer grpcServer = context.getBean(GrpcServer.class);
         grpcServer.start();
 
+        // AppCDS 訓練執行：啟動完成後直接結束，JVM 結束時寫出 class archive
+        if (context.getEnvironment().getProperty("grpc.startup.training-run", Boolean.class, false)) {
+            logger.info("Training run finished, exiting");
+            System.exit(SpringApplication.exit(context));
+        }
+
         // Keep the server running
         grpcServer.blockUntilShutdown();
     }
 
+    // fast profile 的 lazy initialization 下仍在 refresh 時建立，TLS context 才能與其餘初始化並行
     @Component
+    @Lazy(false)
     public static class GrpcServer {
         private Server server;
         private final Logger logger = LoggerFactory.getLogger(GrpcServer.class);
@@ -51,27 +83,112 @@ public class GrpcSampleApplication {
         @Value("${grpc.server.tls.enabled:false}")
         private boolean tlsEnabled;
 
+        // 每 N 個呼叫記錄 1 個的逐筆日誌，錯誤一律記錄
+        @Value("${grpc.logging.sample-rate:1}")
+        private int logSampleRate;
+
+        // 客戶端 deadline 剩餘時間低於此值的呼叫不開始處理
+        @Value("${grpc.server.deadline.min-remaining-ms:0}")
+        private long deadlineMinRemainingMs;
+
+        // default | virtual | fixed | direct
+        @Value("${grpc.server.executor:default}")
+        private String executorMode;
+
+        @Value("${grpc.server.executor.threads:0}")
+        private int executorThreads;
+
+        // sayHello 使用延遲解析的請求與預先編碼的回應，線上格式不變
+        @Value("${grpc.service.pre-encoded:true}")
+        private boolean preEncoded;
+
+        // 同一個 JVM 內的客戶端不經過 loopback 與 HTTP/2
+        @Value("${grpc.server.in-process.enabled:true}")
+        private boolean inProcessEnabled;
+
+        @Value("${grpc.server.in-process.name:greeting-service}")
+        private String inProcessName;
+
+        @Value("${grpc.server.in-process.pass-by-reference:true}")
+        private boolean inProcessByReference;
+
+        // 非空時另外監聽此 Unix domain socket (需要 epoll)
+        @Value("${grpc.server.uds.path:}")
+        private String udsPath;
+
+        // domain socket 是否也使用 TLS，同機流量通常可省略
+        @Value("${grpc.server.uds.tls:false}")
+        private boolean udsTls;
+
+        // 停機時先回報 NOT_SERVING，等待 load balancer 的健康檢查把流量移走後才開始 drain
+        @Value("${grpc.server.drain.health-delay-seconds:0}")
+        private long drainHealthDelaySeconds;
+
+        // 等待進行中呼叫結束的上限，之後強制 shutdownNow
+        @Value("${grpc.server.drain.timeout-seconds:30}")
+        private long drainTimeoutSeconds;
+
+        private final HealthStatusManager health = new HealthStatusManager();
+        private ExecutorService executor;
+        private Server inProcessServer;
+        private Server domainSocketServer;
+
+        // 在 bean 建立時開始建構，與 Spring 其餘初始化同時進行
+        private CompletableFuture<SslContext> sslContextFuture;
+
         @Autowired
         private GreetingService greetingService;
 
         @Autowired
         private TlsConfigHelper tlsConfigHelper;
 
+        @Autowired
+        private MetricsServerInterceptor metricsInterceptor;
+
+        @Autowired
+        private NettyTransportHelper nettyTransportHelper;
+
+        @Autowired
+        private ServerHttp2Settings http2Settings;
+
+        @Autowired
+        private TlsHandshakeMetrics tlsHandshakeMetrics;
+
+        @Autowired
+        private KeystoreWatcher keystoreWatcher;
+
+        @Autowired
+        private CompressionServerInterceptor compressionInterceptor;
+
+        @Autowired
+        private StreamDrainer streamDrainer;
+
+        @Autowired
+        private GrpcServerMetrics serverMetrics;
+
+        // grpc.server.limit.enabled=true 時才會建立
+        @Autowired(required = false)
+        private ConcurrencyLimitServerInterceptor limitInterceptor;
+
+        @PostConstruct
+        void prepareTls() {
+            if (tlsEnabled) {
+                // keystore 變更時替換 context，新的握手使用新憑證，既有連線不中斷
+                sslContextFuture = CompletableFuture.supplyAsync(
+                        () -> keystoreWatcher.watch(tlsConfigHelper.buildServerSslContext()));
+            }
+        }
+
         public void start() throws IOException {
             logger.info("Starting gRPC server on port {} with TLS {}", port, tlsEnabled ? "enabled" : "disabled");
 
-            ServerBuilder<?> serverBuilder;
+            // Epoll transport when available, NIO otherwise
+            NettyServerBuilder serverBuilder = http2Settings.apply(nettyTransportHelper.newServerBuilder(port));
 
             if (tlsEnabled) {
-                // Use NettyServerBuilder to support TLS
                 try {
-                    serverBuilder = NettyServerBuilder.forAddress(new InetSocketAddress("0.0.0.0", port))
-                            .addService(greetingService)
-                            .sslContext(tlsConfigHelper.buildServerSslContext())
-                            .intercept(createLoggingInterceptor())
-                            .keepAliveTime(30, TimeUnit.SECONDS)
-                            .keepAliveTimeout(10, TimeUnit.SECONDS)
-                            .permitKeepAliveWithoutCalls(true);
+                    serverBuilder.sslContext(tlsHandshakeMetrics.instrument(sslContextFuture.join()))
+                            .addTransportFilter(tlsHandshakeMetrics.transportFilter());
 
                     logger.info("Successfully configured TLS for gRPC server on port {}", port);
                 } catch (Exception e) {
@@ -79,29 +196,32 @@ public class GrpcSampleApplication {
                     logger.warn("Falling back to plaintext mode due to TLS configuration failure");
                     // If TLS configuration fails, fallback to plaintext mode and update status
                     tlsEnabled = false;
-                    serverBuilder = ServerBuilder.forPort(port)
-                            .addService(greetingService)
-                            .intercept(createLoggingInterceptor())
-                            .keepAliveTime(30, TimeUnit.SECONDS)
-                            .keepAliveTimeout(10, TimeUnit.SECONDS)
-                            .permitKeepAliveWithoutCalls(true);
                 }
             } else {
                 // Plaintext mode
                 logger.info("Configuring gRPC server in plaintext mode on port {}", port);
-                serverBuilder = ServerBuilder.forPort(port)
-                        .addService(greetingService)
-                        .intercept(createLoggingInterceptor())
-                        .keepAliveTime(30, TimeUnit.SECONDS)
-                        .keepAliveTimeout(10, TimeUnit.SECONDS)
-                        .permitKeepAliveWithoutCalls(true);
             }
 
+            configureNettyServer(serverBuilder);
+
+            ServerExecutors.Mode mode = ServerExecutors.Mode.parse(executorMode);
+            executor = ServerExecutors.create(mode, executorThreads);
+            ServerExecutors.apply(serverBuilder, mode, executor);
+
             server = serverBuilder.build();
             server.start();
 
-            logger.info("gRPC Server started successfully on port {} with TLS {}",
-                    port, tlsEnabled ? "enabled" : "disabled");
+            logger.info("gRPC Server started successfully on port {} with TLS {}, executor {}",
+                    port, tlsEnabled ? "enabled" : "disabled", mode);
+
+            if (inProcessEnabled) {
+                startInProcessServer(mode);
+            }
+            if (!udsPath.isBlank()) {
+                startDomainSocketServer(mode);
+            }
+            health.setStatus("", HealthCheckResponse.ServingStatus.SERVING);
+            health.setStatus(GreetingServiceGrpc.SERVICE_NAME, HealthCheckResponse.ServingStatus.SERVING);
 
             // Add shutdown hook
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -114,59 +234,141 @@ public class GrpcSampleApplication {
             }));
         }
 
-        private ServerInterceptor createLoggingInterceptor() {
-            return new ServerInterceptor() {
-                @Override
-                public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
-                        ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
-                    String methodName = call.getMethodDescriptor().getFullMethodName();
-                    String peerAddress = String.valueOf(call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR));
-
-                    logger.info("Received request: method={}, peer={}", methodName, peerAddress);
-
-                    // 打印所有頭部信息
-                    for (String key : headers.keys()) {
-                        if (!key.endsWith("-bin")) {
-                            logger.debug("Header: {} = {}", key,
-                                    headers.get(Metadata.Key.of(key, Metadata.ASCII_STRING_MARSHALLER)));
-                        }
-                    }
+        /**
+         * 與 Netty listener 相同的服務與 interceptor，同一個 JVM 內的 GrpcClient 經由 {@link LocalServers} 自動改用
+         */
+        private void startInProcessServer(ServerExecutors.Mode mode) throws IOException {
+            // protobuf marshaller 在 in-process 下直接傳遞訊息物件；否則強制每個訊息都經過序列化，行為與網路相同
+            ServerServiceDefinition service = inProcessByReference
+                    ? greetingService.bindService()
+                    : ServerInterceptors.useMarshalledMessages(
+                            preEncoded ? greetingService.bindPreEncodedService() : greetingService.bindService(),
+                            PreEncodedMarshallers.bytes());
+            InProcessServerBuilder builder = InProcessServerBuilder.forName(inProcessName);
+            configureServer(builder, service);
+            ServerExecutors.apply(builder, mode, executor);
+            inProcessServer = builder.build().start();
+            LocalServers.register(port, inProcessName);
+            logger.info("In-process server '{}' started, messages passed {}", inProcessName,
+                    inProcessByReference ? "by reference" : "serialized");
+        }
 
-                    return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(
-                            next.startCall(call, headers)) {
-                        @Override
-                        public void onMessage(ReqT message) {
-                            logger.debug("Received message: {}", message);
-                            super.onMessage(message);
-                        }
-
-                        @Override
-                        public void onCancel() {
-                            logger.info("Client cancelled request: method={}, peer={}", methodName, peerAddress);
-                            super.onCancel();
-                        }
-
-                        @Override
-                        public void onComplete() {
-                            logger.info("Request completed: method={}, peer={}", methodName, peerAddress);
-                            super.onComplete();
-                        }
-                    };
-                }
-            };
+        /**
+         * 同機 sidecar 使用的 Unix domain socket listener，不經過 TCP；TLS 可另外開關
+         */
+        private void startDomainSocketServer(ServerExecutors.Mode mode) throws IOException {
+            NettyServerBuilder builder = http2Settings.apply(nettyTransportHelper.newDomainSocketServerBuilder(udsPath));
+            boolean tls = udsTls && tlsEnabled;
+            if (udsTls && !tlsEnabled) {
+                logger.warn("grpc.server.uds.tls requires grpc.server.tls.enabled, domain socket uses plaintext");
+            }
+            if (tls) {
+                builder.sslContext(tlsHandshakeMetrics.instrument(sslContextFuture.join()))
+                        .addTransportFilter(tlsHandshakeMetrics.transportFilter());
+            }
+            configureNettyServer(builder);
+            ServerExecutors.apply(builder, mode, executor);
+            domainSocketServer = builder.build().start();
+            logger.info("gRPC server listening on unix://{} with TLS {}", udsPath, tls ? "enabled" : "disabled");
+        }
+
+        /**
+         * Services, interceptors and keepalive settings shared by the TCP and domain socket listeners
+         */
+        private void configureNettyServer(NettyServerBuilder serverBuilder) {
+            configureServer(serverBuilder,
+                    preEncoded ? greetingService.bindPreEncodedService() : greetingService.bindService());
+            serverBuilder
+                    .addStreamTracerFactory(metricsInterceptor.streamTracerFactory())
+                    .keepAliveTime(30, TimeUnit.SECONDS)
+                    .keepAliveTimeout(10, TimeUnit.SECONDS)
+                    .permitKeepAliveWithoutCalls(true);
+        }
+
+        /**
+         * Services and interceptors shared by the Netty and in-process servers
+         */
+        private void configureServer(ServerBuilder<?> serverBuilder, ServerServiceDefinition service) {
+            // stream tracer 只記錄已註冊的方法
+            serverMetrics.register(service);
+            serverMetrics.register(health.getHealthService().bindService());
+            serverBuilder
+                    .addService(service)
+                    .addService(health.getHealthService())
+                    .intercept(createLoggingInterceptor())
+                    // 依方法設定回應壓縮，解壓縮請求也使用同一組 codec
+                    .intercept(compressionInterceptor)
+                    .compressorRegistry(compressionInterceptor.codecs().compressorRegistry())
+                    .decompressorRegistry(compressionInterceptor.codecs().decompressorRegistry());
+            if (limitInterceptor != null) {
+                // 在 metrics 之內，被拒絕的呼叫仍會計入 RESOURCE_EXHAUSTED
+                serverBuilder.intercept(limitInterceptor);
+            }
+            serverBuilder
+                    // 已逾時的呼叫在取得併發額度前就結束
+                    .intercept(new DeadlineServerInterceptor(Duration.ofMillis(deadlineMinRemainingMs)))
+                    // Interceptors run in reverse order of registration, so metrics wraps everything
+                    .intercept(metricsInterceptor);
+        }
+
+        private ServerInterceptor createLoggingInterceptor() {
+            return new LoggingServerInterceptor(new LogSampler(logSampleRate));
         }
 
+        /**
+         * 依序 drain：health 改為 NOT_SERVING、停止接受新呼叫並送出 GOAWAY、通知串流在目前的批次後結束，
+         * 等待進行中的呼叫完成，逾時才 shutdownNow
+         */
         private void stop() throws InterruptedException {
-            if (server != null) {
-                // Graceful shutdown
-                server.shutdown();
-                boolean terminated = server.awaitTermination(30, TimeUnit.SECONDS);
-                if (!terminated) {
-                    logger.warn("Server did not terminate in the specified time. Forcing shutdown.");
-                    server.shutdownNow();
+            if (server == null) {
+                return;
+            }
+            health.enterTerminalState();
+            if (drainHealthDelaySeconds > 0) {
+                logger.info("Health set to NOT_SERVING, waiting {} s before draining", drainHealthDelaySeconds);
+                TimeUnit.SECONDS.sleep(drainHealthDelaySeconds);
+            }
+
+            List<Server> servers = new ArrayList<>();
+            servers.add(server);
+            if (inProcessServer != null) {
+                LocalServers.unregister(port);
+                servers.add(inProcessServer);
+            }
+            if (domainSocketServer != null) {
+                servers.add(domainSocketServer);
+            }
+            // 不再接受新呼叫，Netty 對既有連線送出 GOAWAY
+            servers.forEach(Server::shutdown);
+            long inFlight = serverMetrics.inFlightCalls();
+            int streams = streamDrainer.drain();
+            logger.info("Draining: {} calls in flight, {} streams asked to finish their current batch",
+                    inFlight, streams);
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+            for (Server listener : servers) {
+                while (!listener.isTerminated()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    if (!listener.awaitTermination(Math.min(remaining, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS)) {
+                        logger.info("Draining: {} calls in flight", serverMetrics.inFlightCalls());
+                    }
                 }
-                logger.info("gRPC server shut down successfully");
             }
+            if (servers.stream().anyMatch(listener -> !listener.isTerminated())) {
+                logger.warn("Drain timed out after {} s with {} calls in flight, forcing shutdown",
+                        drainTimeoutSeconds, serverMetrics.inFlightCalls());
+                servers.forEach(Server::shutdownNow);
+            }
+
+            if (executor != null) {
+                executor.shutdown();
+            }
+            keystoreWatcher.shutdown();
+            nettyTransportHelper.shutdown();
+            logger.info("gRPC server shut down successfully");
         }
 
         public void blockUntilShutdown() throws InterruptedException {
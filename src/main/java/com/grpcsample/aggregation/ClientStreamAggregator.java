@@ -0,0 +1,69 @@
+package com.grpcsample.aggregation;
+
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.grpc.NameCount;
+import com.grpcsample.grpc.StreamSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 以固定記憶體彙整客戶端串流：精確筆數與位元組數、相異名稱估計 (HyperLogLog)、
+ * 高頻名稱 (count-min sketch) 以及固定大小的隨機樣本 (reservoir sampling)
+ *
+ * <p>不是執行緒安全的，gRPC 對同一個呼叫的 onNext 會依序呼叫。
+ */
+public class ClientStreamAggregator {
+    private static final int HLL_PRECISION = 12;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 2048;
+
+    private final HyperLogLog distinctNames = new HyperLogLog(HLL_PRECISION);
+    private final TopKSketch topNames;
+    private final List<String> sample;
+    private final int sampleSize;
+
+    private long messageCount;
+    private long totalBytes;
+
+    public ClientStreamAggregator(int topK, int sampleSize) {
+        this.topNames = new TopKSketch(topK, SKETCH_DEPTH, SKETCH_WIDTH);
+        this.sampleSize = sampleSize;
+        this.sample = new ArrayList<>(sampleSize);
+    }
+
+    public void add(HelloRequest request) {
+        String name = request.getName();
+        messageCount++;
+        totalBytes += request.getSerializedSize();
+        distinctNames.add(name);
+        topNames.add(name);
+
+        // Algorithm R：第 n 筆以 sampleSize/n 的機率取代樣本中的一筆
+        if (sample.size() < sampleSize) {
+            sample.add(name);
+        } else {
+            long slot = ThreadLocalRandom.current().nextLong(messageCount);
+            if (slot < sampleSize) {
+                sample.set((int) slot, name);
+            }
+        }
+    }
+
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    public StreamSummary toSummary() {
+        StreamSummary.Builder summary = StreamSummary.newBuilder()
+                .setMessageCount(messageCount)
+                .setTotalBytes(totalBytes)
+                .setDistinctNamesEstimate(messageCount == 0 ? 0 : Math.min(messageCount, distinctNames.estimate()))
+                .addAllSampleNames(sample);
+        for (TopKSketch.Entry entry : topNames.top()) {
+            summary.addTopNames(NameCount.newBuilder().setName(entry.name()).setCount(entry.count()));
+        }
+        return summary.build();
+    }
+}
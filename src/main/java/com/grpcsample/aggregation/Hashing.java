@@ -0,0 +1,25 @@
+package com.grpcsample.aggregation;
+
+/**
+ * 串流統計使用的 64 位元字串雜湊 (FNV-1a 加上 MurmurHash3 的 fmix64 混合)
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // FNV 的低位元分佈不夠均勻，再混合一次
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,72 @@
+package com.grpcsample.aggregation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以 count-min sketch 估計出現次數，並保留估計次數最高的 k 個名稱
+ *
+ * <p>記憶體固定為 depth * width 個計數器加上 k 個候選，不隨名稱數量成長。
+ * 估計值只會高估不會低估，誤差上限約為 總數 * e / width。
+ */
+public class TopKSketch {
+
+    public record Entry(String name, long count) {
+    }
+
+    private final int k;
+    private final int width;
+    private final long[][] counters;
+    private final Map<String, Long> candidates;
+
+    public TopKSketch(int k, int depth, int width) {
+        this.k = k;
+        this.width = width;
+        this.counters = new long[depth][width];
+        this.candidates = new HashMap<>(k * 2);
+    }
+
+    public void add(String name) {
+        long hash = Hashing.hash64(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        // 以 double hashing 從一個 64 位元雜湊產生 depth 個索引
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            int index = Math.floorMod(h1 + row * h2, width);
+            long count = ++counters[row][index];
+            estimate = Math.min(estimate, count);
+        }
+
+        if (candidates.containsKey(name) || candidates.size() < k) {
+            candidates.put(name, estimate);
+            return;
+        }
+
+        String minName = null;
+        long minCount = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> candidate : candidates.entrySet()) {
+            if (candidate.getValue() < minCount) {
+                minCount = candidate.getValue();
+                minName = candidate.getKey();
+            }
+        }
+        if (estimate > minCount) {
+            candidates.remove(minName);
+            candidates.put(name, estimate);
+        }
+    }
+
+    /**
+     * 依估計次數由高到低排序
+     */
+    public List<Entry> top() {
+        List<Entry> entries = new ArrayList<>(candidates.size());
+        candidates.forEach((name, count) -> entries.add(new Entry(name, count)));
+        entries.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return entries;
+    }
+}
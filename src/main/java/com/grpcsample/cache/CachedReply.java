@@ -0,0 +1,16 @@
+package com.grpcsample.cache;
+
+import com.google.protobuf.ByteString;
+import com.grpcsample.grpc.HelloReply;
+
+/**
+ * 快取的回應，同時保留訊息物件與其序列化後的位元組
+ *
+ * @param encoded {@code reply} 的 protobuf 編碼，寫入快取時計算一次
+ */
+public record CachedReply(HelloReply reply, ByteString encoded) {
+
+    public static CachedReply of(HelloReply reply) {
+        return new CachedReply(reply, reply.toByteString());
+    }
+}
@@ -0,0 +1,92 @@
+package com.grpcsample.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.protobuf.ByteString;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.metrics.MetricsSource;
+import com.grpcsample.metrics.PrometheusTextWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 以 Caffeine 實作的回應快取
+ *
+ * <p>Caffeine 使用 W-TinyLFU 淘汰策略：新項目先進入小的 LRU window，要進入主區域時
+ * 以頻率 sketch 與候選淘汰項目比較，因此在少數名稱佔大多數流量時命中率接近最佳。
+ * 容量以位元組計算 (key 與編碼後回應的大小加上固定的項目開銷)。
+ */
+@Component
+@ConditionalOnProperty(name = "grpc.service.reply-cache.policy", havingValue = "tinylfu")
+public class CaffeineReplyCache implements ReplyCache, MetricsSource {
+
+    // 每個項目的物件開銷估計值 (節點、key/value 物件與 byte[] header)
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final Cache<ByteString, CachedReply> cache;
+    private final long maxBytes;
+
+    public CaffeineReplyCache(@Value("${grpc.service.reply-cache.max-bytes:16777216}") long maxBytes,
+                              @Value("${grpc.service.reply-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxBytes = maxBytes;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .recordStats();
+        if (ttlSeconds > 0) {
+            builder.expireAfterWrite(Duration.ofSeconds(ttlSeconds));
+        }
+        this.cache = builder
+                .<ByteString, CachedReply>weigher((key, value) -> weigh(key, value))
+                .build();
+    }
+
+    private static int weigh(ByteString key, CachedReply value) {
+        return key.size() + value.encoded().size() + ENTRY_OVERHEAD_BYTES;
+    }
+
+    @Override
+    public CachedReply get(ByteString requestKey, Supplier<HelloReply> builder) {
+        return cache.get(requestKey, key -> CachedReply.of(builder.get()));
+    }
+
+    /**
+     * 快取內容佔用的位元組估計值
+     */
+    public long weightedSize() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * 立即執行等待中的淘汰與過期處理
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        CacheStats stats = cache.stats();
+        writer.declare("grpc_reply_cache_requests_total", "counter", "Reply cache lookups by result.");
+        writer.sample("grpc_reply_cache_requests_total", stats.hitCount(), "result", "hit");
+        writer.sample("grpc_reply_cache_requests_total", stats.missCount(), "result", "miss");
+        writer.declare("grpc_reply_cache_evictions_total", "counter", "Entries evicted by size or TTL.");
+        writer.sample("grpc_reply_cache_evictions_total", stats.evictionCount());
+        writer.declare("grpc_reply_cache_entries", "gauge", "Approximate number of cached replies.");
+        writer.sample("grpc_reply_cache_entries", cache.estimatedSize());
+        writer.declare("grpc_reply_cache_size_bytes", "gauge", "Approximate bytes held by the cache.");
+        writer.sample("grpc_reply_cache_size_bytes", weightedSize());
+        writer.declare("grpc_reply_cache_max_bytes", "gauge", "Configured cache size bound in bytes.");
+        writer.sample("grpc_reply_cache_max_bytes", maxBytes);
+    }
+}
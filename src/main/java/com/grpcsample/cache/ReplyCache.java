@@ -0,0 +1,19 @@
+package com.grpcsample.cache;
+
+import com.google.protobuf.ByteString;
+import com.grpcsample.grpc.HelloReply;
+
+import java.util.function.Supplier;
+
+/**
+ * sayHello 的回應快取，以請求的序列化位元組為 key (grpc.service.reply-cache.policy)
+ */
+public interface ReplyCache {
+
+    /**
+     * 取得快取的回應，未命中時以 {@code builder} 建立並寫入快取
+     *
+     * @param requestKey 請求的 protobuf 編碼
+     */
+    CachedReply get(ByteString requestKey, Supplier<HelloReply> builder);
+}
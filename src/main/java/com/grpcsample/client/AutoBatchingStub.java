@@ -0,0 +1,198 @@
+package com.grpcsample.client;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloBatchReply;
+import com.grpcsample.grpc.HelloBatchRequest;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.Channel;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces single sayHello calls into sayHelloBatch RPCs.
+ *
+ * <p>A batch is sent as soon as it holds {@code maxBatchSize} requests, or once the oldest
+ * pending request has waited {@code linger}. Each caller gets its own future, completed from
+ * the matching entry of the batch reply. With a timeout, each batch RPC carries a deadline
+ * measured from when the batch is sent.
+ */
+public class AutoBatchingStub implements AutoCloseable {
+
+    private record Pending(HelloRequest request, CompletableFuture<HelloReply> future) {
+    }
+
+    private final GreetingServiceGrpc.GreetingServiceStub stub;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Duration timeout;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private List<Pending> pending;
+    private ScheduledFuture<?> lingerTimer;
+    private boolean closed = false;
+
+    public AutoBatchingStub(Channel channel, int maxBatchSize, Duration linger) {
+        this(channel, maxBatchSize, linger, null);
+    }
+
+    /**
+     * @param timeout deadline for each batch RPC, or null for no deadline
+     */
+    public AutoBatchingStub(Channel channel, int maxBatchSize, Duration linger, Duration timeout) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.stub = GreetingServiceGrpc.newStub(channel);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+        this.timeout = timeout;
+        this.pending = new ArrayList<>(maxBatchSize);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "grpc-auto-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the request for the next batch
+     */
+    public CompletableFuture<HelloReply> sayHello(HelloRequest request) {
+        CompletableFuture<HelloReply> future = new CompletableFuture<>();
+        List<Pending> full = null;
+        synchronized (lock) {
+            if (closed) {
+                future.completeExceptionally(new IllegalStateException("AutoBatchingStub is closed"));
+                return future;
+            }
+            pending.add(new Pending(request, future));
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                List<Pending> batch = pending;
+                lingerTimer = scheduler.schedule(() -> lingerExpired(batch), lingerNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return future;
+    }
+
+    public CompletableFuture<HelloReply> sayHello(String name) {
+        return sayHello(HelloRequest.newBuilder().setName(name).build());
+    }
+
+    /**
+     * Sends whatever is pending without waiting for the linger time
+     */
+    public void flush() {
+        List<Pending> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Linger timer for {@code batch}. A timer that already started when a full batch was sent
+     * cannot be cancelled; it finds a newer list in {@code pending} and leaves that batch alone.
+     */
+    private void lingerExpired(List<Pending> batch) {
+        List<Pending> expired;
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+            expired = takePending();
+        }
+        if (expired != null) {
+            send(expired);
+        }
+    }
+
+    // Must hold lock
+    private List<Pending> takePending() {
+        if (lingerTimer != null) {
+            lingerTimer.cancel(false);
+            lingerTimer = null;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<Pending> batch = pending;
+        pending = new ArrayList<>(maxBatchSize);
+        return batch;
+    }
+
+    private void send(List<Pending> batch) {
+        HelloBatchRequest.Builder request = HelloBatchRequest.newBuilder();
+        for (Pending p : batch) {
+            request.addRequests(p.request());
+        }
+
+        GreetingServiceGrpc.GreetingServiceStub batchStub = timeout != null
+                ? stub.withDeadlineAfter(timeout.toNanos(), TimeUnit.NANOSECONDS)
+                : stub;
+        batchStub.sayHelloBatch(request.build(), new StreamObserver<HelloBatchReply>() {
+            @Override
+            public void onNext(HelloBatchReply reply) {
+                if (reply.getRepliesCount() != batch.size()) {
+                    failAll(batch, Status.INTERNAL
+                            .withDescription("Expected " + batch.size() + " replies, got " + reply.getRepliesCount())
+                            .asRuntimeException());
+                    return;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).future().complete(reply.getReplies(i));
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                failAll(batch, t);
+            }
+
+            @Override
+            public void onCompleted() {
+                // No-op for futures already completed by onNext
+                failAll(batch, Status.INTERNAL.withDescription("No batch reply received").asRuntimeException());
+            }
+        });
+    }
+
+    private static void failAll(List<Pending> batch, Throwable t) {
+        for (Pending p : batch) {
+            p.future().completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Sends the pending requests and stops accepting new ones
+     */
+    @Override
+    public void close() {
+        List<Pending> batch;
+        synchronized (lock) {
+            closed = true;
+            batch = takePending();
+        }
+        if (batch != null) {
+            send(batch);
+        }
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,33 @@
+package com.grpcsample.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 客戶端不經過 Spring，直接從 classpath 讀取 application.properties
+ */
+final class ClasspathProperties {
+    private static final Logger logger = LoggerFactory.getLogger(ClasspathProperties.class);
+
+    private ClasspathProperties() {
+    }
+
+    /**
+     * @return 檔案不存在或無法讀取時傳回空的 Properties，呼叫端使用預設值
+     */
+    static Properties load(String resource) {
+        Properties properties = new Properties();
+        try (InputStream in = ClasspathProperties.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read {}, using defaults: {}", resource, e.getMessage());
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,58 @@
+package com.grpcsample.client;
+
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+
+import java.util.Properties;
+
+/**
+ * HTTP/2 settings for client channels, read from the {@code grpc.client.http2.*} entries of
+ * application.properties on the classpath
+ *
+ * @param flowControlWindow initial window in bytes; with bdpAutoWindow it grows with the measured
+ *                          bandwidth-delay product, otherwise it stays fixed
+ */
+public record ClientHttp2Settings(int flowControlWindow, boolean bdpAutoWindow,
+                                  int maxInboundMessageSize, int maxHeaderListSize) {
+    public static final ClientHttp2Settings DEFAULTS = new ClientHttp2Settings(1024 * 1024, true, 4 * 1024 * 1024, 8192);
+
+    private static final String PREFIX = "grpc.client.http2.";
+
+    private static final class Holder {
+        static final ClientHttp2Settings LOADED = load("application.properties");
+    }
+
+    /**
+     * Settings from application.properties, loaded once
+     */
+    public static ClientHttp2Settings fromApplicationProperties() {
+        return Holder.LOADED;
+    }
+
+    static ClientHttp2Settings load(String resource) {
+        return fromProperties(ClasspathProperties.load(resource));
+    }
+
+    public static ClientHttp2Settings fromProperties(Properties properties) {
+        return new ClientHttp2Settings(
+                intProperty(properties, "flow-control-window", DEFAULTS.flowControlWindow),
+                Boolean.parseBoolean(properties.getProperty(PREFIX + "bdp-auto-window",
+                        Boolean.toString(DEFAULTS.bdpAutoWindow))),
+                intProperty(properties, "max-inbound-message-size", DEFAULTS.maxInboundMessageSize),
+                intProperty(properties, "max-header-list-size", DEFAULTS.maxHeaderListSize));
+    }
+
+    private static int intProperty(Properties properties, String name, int defaultValue) {
+        String value = properties.getProperty(PREFIX + name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    public NettyChannelBuilder apply(NettyChannelBuilder builder) {
+        if (bdpAutoWindow) {
+            builder.initialFlowControlWindow(flowControlWindow);
+        } else {
+            builder.flowControlWindow(flowControlWindow);
+        }
+        return builder.maxInboundMessageSize(maxInboundMessageSize)
+                .maxInboundMetadataSize(maxHeaderListSize);
+    }
+}
@@ -0,0 +1,57 @@
+package com.grpcsample.client;
+
+import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.shaded.io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.grpc.netty.shaded.io.netty.handler.ssl.ApplicationProtocolNames;
+import io.grpc.netty.shaded.io.netty.handler.ssl.OpenSsl;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslProvider;
+
+import javax.net.ssl.SSLException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 客戶端 TLS context，優先使用 netty-tcnative (BoringSSL)
+ *
+ * <p>Session 快取在 SslContext 內，同一個 context 建立的連線重新連線時可恢復 session 略過完整握手，
+ * 因此應在 channel 之間共用 context，而不是每條連線各建一個。
+ */
+public final class ClientSslContexts {
+
+    // 依 host:port 快取的 session 數量上限
+    private static final long SESSION_CACHE_SIZE = 1024;
+
+    private ClientSslContexts() {
+    }
+
+    public static SslProvider defaultProvider() {
+        return OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+    }
+
+    /**
+     * 信任指定 PEM 憑證的客戶端 context
+     */
+    public static SslContext forTrustedCert(File certFile) throws IOException {
+        try (InputStream cert = new FileInputStream(certFile)) {
+            return forTrustedCert(cert, defaultProvider());
+        }
+    }
+
+    public static SslContext forTrustedCert(InputStream cert, SslProvider provider) throws SSLException {
+        // Build SSL context with HTTP/2 ALPN enabled
+        return GrpcSslContexts.configure(SslContextBuilder.forClient(), provider)
+                .trustManager(cert)
+                .protocols("TLSv1.3", "TLSv1.2")
+                .sessionCacheSize(SESSION_CACHE_SIZE)
+                .applicationProtocolConfig(new ApplicationProtocolConfig(
+                        ApplicationProtocolConfig.Protocol.ALPN,
+                        ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                        ApplicationProtocolNames.HTTP_2))
+                .build();
+    }
+}
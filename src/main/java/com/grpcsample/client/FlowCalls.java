@@ -0,0 +1,412 @@
+package com.grpcsample.client;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 將 gRPC async stub 的呼叫轉換為 {@link CompletableFuture} 與 {@link Flow.Publisher}
+ *
+ * <p>Flow 的需求量直接對應 gRPC 的流量控制：回應端關閉自動 request，訂閱者 request(n) 時才向
+ * server 要求 n 則訊息；請求端只在 call {@code isReady()} 時向上游 publisher 要求下一則，
+ * 因此兩個方向都不會無限制地緩衝，也不需要任何執行緒等待。
+ */
+public final class FlowCalls {
+
+    private FlowCalls() {
+    }
+
+    /**
+     * Unary 呼叫，取消 future 會取消 RPC
+     *
+     * @param call 例如 {@code asyncStub::sayHello}
+     */
+    public static <ReqT, RespT> CompletableFuture<RespT> unary(BiConsumer<ReqT, StreamObserver<RespT>> call,
+                                                               ReqT request) {
+        CompletableFuture<RespT> future = new CompletableFuture<>();
+        call.accept(request, new ClientResponseObserver<ReqT, RespT>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+                cancelOnFutureCancel(future, requestStream);
+            }
+
+            @Override
+            public void onNext(RespT value) {
+                future.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                // 沒有回應就結束時 future 不會停在未完成狀態
+                future.completeExceptionally(new IllegalStateException("Call completed without a response"));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Server streaming 呼叫，每次 subscribe 發起一個新的 RPC
+     *
+     * @param call 例如 {@code observer -> asyncStub.sayHellosServerStream(request, observer)}
+     */
+    public static <RespT> Flow.Publisher<RespT> serverStream(Consumer<StreamObserver<RespT>> call) {
+        return subscriber -> {
+            Objects.requireNonNull(subscriber);
+            InboundSubscription<Object, RespT> inbound = new InboundSubscription<>(subscriber, null);
+            subscriber.onSubscribe(inbound);
+            call.accept(inbound);
+            inbound.started();
+        };
+    }
+
+    /**
+     * Client streaming 呼叫，訂閱 {@code requests} 並在 call 可寫入時才要求下一則
+     *
+     * @param call 例如 {@code asyncStub::sayHellosClientStream}
+     */
+    public static <ReqT, RespT> CompletableFuture<RespT> clientStream(
+            Function<StreamObserver<RespT>, StreamObserver<ReqT>> call, Flow.Publisher<ReqT> requests) {
+        CompletableFuture<RespT> future = new CompletableFuture<>();
+        OutboundSubscriber<ReqT> outbound = new OutboundSubscriber<>();
+        call.apply(new ClientResponseObserver<ReqT, RespT>() {
+            @Override
+            public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+                outbound.attach(requestStream);
+                cancelOnFutureCancel(future, requestStream);
+            }
+
+            @Override
+            public void onNext(RespT value) {
+                future.complete(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                outbound.cancelUpstream();
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+                outbound.cancelUpstream();
+                future.completeExceptionally(new IllegalStateException("Call completed without a response"));
+            }
+        });
+        requests.subscribe(outbound);
+        return future;
+    }
+
+    /**
+     * Bidirectional streaming 呼叫，每次 subscribe 發起一個新的 RPC 並訂閱 {@code requests}
+     *
+     * @param call 例如 {@code asyncStub::sayHellosBidirectional}
+     */
+    public static <ReqT, RespT> Flow.Publisher<RespT> bidiStream(
+            Function<StreamObserver<RespT>, StreamObserver<ReqT>> call, Flow.Publisher<ReqT> requests) {
+        return subscriber -> {
+            Objects.requireNonNull(subscriber);
+            OutboundSubscriber<ReqT> outbound = new OutboundSubscriber<>();
+            InboundSubscription<ReqT, RespT> inbound = new InboundSubscription<>(subscriber, outbound);
+            subscriber.onSubscribe(inbound);
+            call.apply(inbound);
+            inbound.started();
+            requests.subscribe(outbound);
+        };
+    }
+
+    /**
+     * 依需求逐一送出 {@code items} 的 publisher
+     */
+    public static <T> Flow.Publisher<T> fromIterable(Iterable<T> items) {
+        return subscriber -> subscriber.onSubscribe(new IterableSubscription<>(items.iterator(), subscriber));
+    }
+
+    /**
+     * 以固定的預取量訂閱，對每則訊息執行 {@code action}，完成時回傳訊息數
+     */
+    public static <T> CompletableFuture<Long> forEach(Flow.Publisher<T> publisher, int prefetch, Consumer<T> action) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<T>() {
+            private Flow.Subscription subscription;
+            private long count = 0;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(prefetch);
+            }
+
+            @Override
+            public void onNext(T item) {
+                count++;
+                try {
+                    action.accept(item);
+                } catch (RuntimeException e) {
+                    subscription.cancel();
+                    done.completeExceptionally(e);
+                    return;
+                }
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(count);
+            }
+        });
+        return done;
+    }
+
+    private static void cancelOnFutureCancel(CompletableFuture<?> future, ClientCallStreamObserver<?> requestStream) {
+        future.whenComplete((value, t) -> {
+            if (future.isCancelled()) {
+                requestStream.cancel("Future cancelled", null);
+            }
+        });
+    }
+
+    /**
+     * 將回應串流交給 Flow 訂閱者，訂閱者的需求量轉為 gRPC 的 request(n)
+     */
+    private static final class InboundSubscription<ReqT, RespT>
+            implements ClientResponseObserver<ReqT, RespT>, Flow.Subscription {
+        private final Flow.Subscriber<? super RespT> subscriber;
+        // bidi 呼叫的請求方向，server streaming 時為 null
+        private final OutboundSubscriber<ReqT> outbound;
+        // call 開始前累積的需求量
+        private final AtomicLong pendingDemand = new AtomicLong();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile ClientCallStreamObserver<ReqT> requestStream;
+        private volatile boolean started = false;
+
+        InboundSubscription(Flow.Subscriber<? super RespT> subscriber, OutboundSubscriber<ReqT> outbound) {
+            this.subscriber = subscriber;
+            this.outbound = outbound;
+        }
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+            this.requestStream = requestStream;
+            requestStream.disableAutoRequestWithInitial(0);
+            if (outbound != null) {
+                outbound.attach(requestStream);
+            }
+        }
+
+        /**
+         * call 已開始，可以轉送需求量
+         */
+        void started() {
+            started = true;
+            if (cancelled.get()) {
+                requestStream.cancel("Subscriber cancelled", null);
+            } else {
+                drainDemand();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("Demand must be positive, got " + n));
+                return;
+            }
+            pendingDemand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            drainDemand();
+        }
+
+        private void drainDemand() {
+            if (!started || cancelled.get()) {
+                return;
+            }
+            long demand = pendingDemand.getAndSet(0);
+            if (demand > 0) {
+                requestStream.request((int) Math.min(demand, Integer.MAX_VALUE));
+            }
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                if (outbound != null) {
+                    outbound.cancelUpstream();
+                }
+                if (started) {
+                    requestStream.cancel("Subscriber cancelled", null);
+                }
+            }
+        }
+
+        @Override
+        public void onNext(RespT value) {
+            if (!cancelled.get()) {
+                subscriber.onNext(value);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (outbound != null) {
+                outbound.cancelUpstream();
+            }
+            if (!cancelled.get()) {
+                subscriber.onError(t);
+            }
+        }
+
+        @Override
+        public void onCompleted() {
+            if (outbound != null) {
+                outbound.cancelUpstream();
+            }
+            if (!cancelled.get()) {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    /**
+     * 訂閱請求 publisher 並寫入 gRPC 請求串流，只有 call ready 時才向上游要求下一則
+     */
+    private static final class OutboundSubscriber<ReqT> implements Flow.Subscriber<ReqT> {
+        private volatile ClientCallStreamObserver<ReqT> requestStream;
+        private volatile Flow.Subscription upstream;
+        // 上一則已寫入但 call 不是 ready，等 onReady 再要求下一則
+        private final AtomicBoolean waitingForReady = new AtomicBoolean(true);
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        /**
+         * 必須在 beforeStart 中呼叫，onReady handler 只能在 call 開始前設定
+         */
+        void attach(ClientCallStreamObserver<ReqT> requestStream) {
+            this.requestStream = requestStream;
+            requestStream.setOnReadyHandler(this::requestNextIfReady);
+        }
+
+        private void requestNextIfReady() {
+            Flow.Subscription subscription = upstream;
+            if (subscription != null && !done.get() && requestStream.isReady()
+                    && waitingForReady.compareAndSet(true, false)) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (upstream != null || done.get()) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            requestNextIfReady();
+        }
+
+        @Override
+        public void onNext(ReqT item) {
+            if (done.get()) {
+                return;
+            }
+            requestStream.onNext(item);
+            waitingForReady.set(true);
+            // 設定旗標後再檢查一次，避免錯過在兩者之間觸發的 onReady
+            requestNextIfReady();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (done.compareAndSet(false, true)) {
+                requestStream.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (done.compareAndSet(false, true)) {
+                requestStream.onCompleted();
+            }
+        }
+
+        void cancelUpstream() {
+            if (done.compareAndSet(false, true)) {
+                Flow.Subscription subscription = upstream;
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * 依需求量從 iterator 取值，重入的 request 只累加需求量，由外層迴圈送出
+     */
+    private static final class IterableSubscription<T> implements Flow.Subscription {
+        private final Iterator<T> iterator;
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled = false;
+
+        IterableSubscription(Iterator<T> iterator, Flow.Subscriber<? super T> subscriber) {
+            this.iterator = iterator;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Demand must be positive, got " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!cancelled && demand.get() > 0) {
+                    if (!iterator.hasNext()) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    demand.decrementAndGet();
+                    subscriber.onNext(iterator.next());
+                }
+                if (!cancelled && !iterator.hasNext()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -1,49 +1,56 @@
 package com.grpcsample.client;
 
+import com.grpcsample.compression.CompressionClientInterceptor;
 import com.grpcsample.grpc.GreetingServiceGrpc;
 import com.grpcsample.grpc.HelloRequest;
 import com.grpcsample.grpc.HelloReply;
 import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
-import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
+import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
-import io.grpc.netty.shaded.io.netty.handler.ssl.ApplicationProtocolConfig;
-import io.grpc.netty.shaded.io.netty.handler.ssl.ApplicationProtocolNames;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
-import io.grpc.stub.StreamObserver;
+import io.grpc.stub.AbstractStub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 
 public class GrpcClient {
     private static final Logger logger = LoggerFactory.getLogger(GrpcClient.class);
 
+    // Responses requested ahead when consuming a streaming call
+    private static final int STREAM_PREFETCH = 16;
+
+    private static final String UNIX_SCHEME = "unix:";
+
+    // Deadline applied to every call unless changed with setCallTimeout
+    public static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(10);
+
     private final ManagedChannel channel;
     private final GreetingServiceGrpc.GreetingServiceBlockingStub blockingStub;
     private final GreetingServiceGrpc.GreetingServiceStub asyncStub;
+    private volatile Duration callTimeout = DEFAULT_CALL_TIMEOUT;
+    private volatile String compression;
+    private volatile int compressionMinBytes = CompressionClientInterceptor.DEFAULT_MIN_MESSAGE_BYTES;
 
     /**
-     * Create client without TLS
+     * Create client without TLS; uses the in-process channel when the target is a server in this JVM
      */
     public GrpcClient(String host, int port) {
-        this(ManagedChannelBuilder.forAddress(host, port)
-                .usePlaintext()
-                .keepAliveTime(30, TimeUnit.SECONDS)
-                .keepAliveTimeout(10, TimeUnit.SECONDS)
-                .keepAliveWithoutCalls(true)
-                .build());
+        this(Objects.requireNonNullElseGet(inProcessChannel(host, port),
+                () -> newChannel(tcpChannelBuilder(host, port), null)));
     }
 
     /**
-     * Create client with TLS
+     * Create client with TLS; uses the in-process channel when the target is a server in this JVM
      */
     public GrpcClient(String host, int port, File certFile) throws Exception {
-        this(createSecureChannel(host, port, certFile));
+        this(tlsChannel(host, port, certFile));
     }
 
     private GrpcClient(ManagedChannel channel) {
@@ -52,26 +59,144 @@ public class GrpcClient {
         asyncStub = GreetingServiceGrpc.newStub(channel);
     }
 
-    private static ManagedChannel createSecureChannel(String host, int port, File certFile) throws Exception {
-        // Build SSL context with HTTP/2 ALPN enabled
-        SslContext sslContext = GrpcSslContexts.forClient()
-                .trustManager(certFile)
-                .applicationProtocolConfig(new ApplicationProtocolConfig(
-                        ApplicationProtocolConfig.Protocol.ALPN,
-                        ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
-                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
-                        ApplicationProtocolNames.HTTP_2))
+    /**
+     * Create client for a target string: {@code unix:///path/to/socket} for a Unix domain socket
+     * (epoll only), or {@code host:port}
+     *
+     * @param certFile server certificate to trust, or null for plaintext
+     */
+    public static GrpcClient forTarget(String target, File certFile) throws Exception {
+        if (target.startsWith(UNIX_SCHEME)) {
+            String path = target.substring(UNIX_SCHEME.length());
+            if (path.startsWith("//")) {
+                path = path.substring(2);
+            }
+            SslContext sslContext = certFile != null ? ClientSslContexts.forTrustedCert(certFile) : null;
+            return new GrpcClient(newChannel(NettyClientTransport.forDomainSocket(path), sslContext));
+        }
+        int colon = target.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected unix:///path or host:port, got: " + target);
+        }
+        String host = target.substring(0, colon);
+        int port = Integer.parseInt(target.substring(colon + 1));
+        return certFile != null ? new GrpcClient(host, port, certFile) : new GrpcClient(host, port);
+    }
+
+    /**
+     * Create client that spreads calls over a {@link GrpcClientPool}
+     *
+     * @param certFile server certificate to trust, or null for plaintext
+     */
+    public static GrpcClient pooled(GrpcClientPool.Options options, File certFile) throws Exception {
+        SslContext sslContext = certFile != null ? ClientSslContexts.forTrustedCert(certFile) : null;
+        return new GrpcClient(new GrpcClientPool(options,
+                address -> newChannel(NettyClientTransport.configure(NettyChannelBuilder.forAddress(address)),
+                        sslContext)));
+    }
+
+    /**
+     * @return channel to a server registered in {@link LocalServers}, or null if the target is not in this JVM
+     */
+    private static ManagedChannel inProcessChannel(String host, int port) {
+        String inProcessName = LocalServers.lookup(host, port);
+        if (inProcessName == null) {
+            return null;
+        }
+        logger.info("Target {}:{} is served in this JVM, using in-process channel '{}'", host, port, inProcessName);
+        return InProcessChannelBuilder.forName(inProcessName)
+                .intercept(new CompressionClientInterceptor())
                 .build();
+    }
+
+    private static ManagedChannel tlsChannel(String host, int port, File certFile) throws Exception {
+        ManagedChannel local = inProcessChannel(host, port);
+        return local != null
+                ? local
+                : newChannel(tcpChannelBuilder(host, port), ClientSslContexts.forTrustedCert(certFile));
+    }
+
+    private static NettyChannelBuilder tcpChannelBuilder(String host, int port) {
+        return NettyClientTransport.configure(NettyChannelBuilder.forAddress(host, port));
+    }
 
-        // Create TLS channel
-        return NettyChannelBuilder.forAddress(host, port)
-                .sslContext(sslContext)
+    /**
+     * @param builder    builder with the transport already chosen (TCP or domain socket)
+     * @param sslContext TLS context, or null for plaintext
+     */
+    private static ManagedChannel newChannel(NettyChannelBuilder builder, SslContext sslContext) {
+        ClientHttp2Settings.fromApplicationProperties().apply(builder);
+        builder.intercept(new CompressionClientInterceptor());
+        if (sslContext != null) {
+            builder.sslContext(sslContext);
+        } else {
+            builder.usePlaintext();
+        }
+        return builder
                 .keepAliveTime(30, TimeUnit.SECONDS)
                 .keepAliveTimeout(10, TimeUnit.SECONDS)
                 .keepAliveWithoutCalls(true)
                 .build();
     }
 
+    /**
+     * Deadline for each call, measured from when the call starts; for streaming calls it covers the
+     * whole stream. The deadline is sent to the server, which stops work once it passes.
+     *
+     * @param callTimeout timeout per call, or null for no deadline
+     */
+    public void setCallTimeout(Duration callTimeout) {
+        this.callTimeout = callTimeout;
+    }
+
+    public Duration getCallTimeout() {
+        return callTimeout;
+    }
+
+    /**
+     * Compress requests with the given codec, skipping messages smaller than minMessageBytes. The
+     * server picks the response codec itself, per method. Codecs other than gzip must be registered
+     * in {@link io.grpc.CompressorRegistry#getDefaultInstance()}.
+     *
+     * @param codec codec name such as "gzip", or null to send requests uncompressed
+     */
+    public void setCompression(String codec, int minMessageBytes) {
+        this.compressionMinBytes = minMessageBytes;
+        this.compression = codec;
+    }
+
+    /**
+     * Stub carrying the call deadline and compression; must be called when the call starts, since the
+     * deadline is absolute
+     */
+    private <S extends AbstractStub<S>> S withCallOptions(S stub) {
+        Duration timeout = callTimeout;
+        if (timeout != null) {
+            stub = stub.withDeadlineAfter(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        String codec = compression;
+        if (codec != null) {
+            stub = stub.withCompression(codec)
+                    .withOption(CompressionClientInterceptor.MIN_MESSAGE_BYTES, compressionMinBytes);
+        }
+        return stub;
+    }
+
+    /**
+     * Underlying channel, for callers that need their own stubs (e.g. load generation)
+     */
+    public ManagedChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Create a stub that coalesces sayHello calls into sayHelloBatch RPCs, sending a batch once it
+     * holds maxBatchSize requests or the oldest request has waited linger. Close it when done.
+     */
+    public AutoBatchingStub newAutoBatchingStub(int maxBatchSize, Duration linger) {
+        return new AutoBatchingStub(channel, maxBatchSize, linger, callTimeout);
+    }
+
     public void shutdown() throws InterruptedException {
         channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
     }
@@ -83,7 +208,7 @@ public class GrpcClient {
         logger.info("Sending sayHello request, name: {}", name);
         try {
             HelloRequest request = HelloRequest.newBuilder().setName(name).build();
-            HelloReply response = blockingStub.sayHello(request);
+            HelloReply response = withCallOptions(blockingStub).sayHello(request);
             logger.info("Received response: {}", response.getMessage());
             return response.getMessage();
         } catch (Exception e) {
@@ -93,172 +218,96 @@ public class GrpcClient {
     }
 
     /**
-     * Test server streaming RPC
+     * Non-blocking sayHello; cancelling the future cancels the call
      */
-    public void testServerStream(String name) {
-        logger.info("Testing server streaming RPC, name: {}", name);
-        HelloRequest request = HelloRequest.newBuilder().setName(name).build();
-
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-
-        asyncStub.sayHellosServerStream(request, new StreamObserver<HelloReply>() {
-            int responseCount = 0;
-
-            @Override
-            public void onNext(HelloReply value) {
-                logger.info("Received server stream response #{}: {}", responseCount++, value.getMessage());
-            }
-
-            @Override
-            public void onError(Throwable t) {
-                logger.error("Server stream error: {}", t.getMessage(), t);
-                finishLatch.countDown();
-            }
-
-            @Override
-            public void onCompleted() {
-                logger.info("Server stream completed, received {} responses", responseCount);
-                finishLatch.countDown();
-            }
-        });
+    public CompletableFuture<HelloReply> sayHelloAsync(HelloRequest request) {
+        return FlowCalls.unary(withCallOptions(asyncStub)::sayHello, request);
+    }
 
-        try {
-            if (!finishLatch.await(30, TimeUnit.SECONDS)) {
-                logger.warn("Server stream timeout!");
-            }
-        } catch (InterruptedException e) {
-            logger.error("Interrupted while waiting for server stream completion", e);
-            Thread.currentThread().interrupt();
-        }
+    public CompletableFuture<HelloReply> sayHelloAsync(String name) {
+        return sayHelloAsync(HelloRequest.newBuilder().setName(name).build());
     }
 
     /**
-     * Test client streaming RPC
+     * Server streaming RPC as a publisher; each subscription starts a new call and the
+     * subscriber's demand is forwarded to the server as gRPC flow control
      */
-    public String testClientStream(List<String> names) {
-        logger.info("Testing client streaming RPC, name list: {}", names);
-
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-        final AtomicReference<String> response = new AtomicReference<>();
-        final AtomicReference<Throwable> error = new AtomicReference<>();
-
-        StreamObserver<HelloReply> responseObserver = new StreamObserver<HelloReply>() {
-            @Override
-            public void onNext(HelloReply value) {
-                logger.info("Received client stream response: {}", value.getMessage());
-                response.set(value.getMessage());
-            }
-
-            @Override
-            public void onError(Throwable t) {
-                logger.error("Client stream error: {}", t.getMessage(), t);
-                error.set(t);
-                finishLatch.countDown();
-            }
-
-            @Override
-            public void onCompleted() {
-                logger.info("Client stream completed");
-                finishLatch.countDown();
-            }
-        };
-
-        StreamObserver<HelloRequest> requestObserver = asyncStub.sayHellosClientStream(responseObserver);
+    public Flow.Publisher<HelloReply> sayHellosServerStream(HelloRequest request) {
+        return FlowCalls.serverStream(observer -> withCallOptions(asyncStub).sayHellosServerStream(request, observer));
+    }
 
-        try {
-            for (String name : names) {
-                logger.info("Sending client stream request: {}", name);
-                HelloRequest request = HelloRequest.newBuilder().setName(name).build();
-                requestObserver.onNext(request);
+    /**
+     * Client streaming RPC; the next request is pulled from the publisher only when the call is ready
+     */
+    public CompletableFuture<HelloReply> sayHellosClientStream(Flow.Publisher<HelloRequest> requests) {
+        return FlowCalls.clientStream(withCallOptions(asyncStub)::sayHellosClientStream, requests);
+    }
 
-                // Brief delay to avoid sending too quickly
-                Thread.sleep(200);
-            }
+    /**
+     * Bidirectional streaming RPC; each subscription starts a new call and subscribes to requests
+     */
+    public Flow.Publisher<HelloReply> sayHellosBidirectional(Flow.Publisher<HelloRequest> requests) {
+        return FlowCalls.bidiStream(
+                observer -> withCallOptions(asyncStub).sayHellosBidirectional(observer), requests);
+    }
 
-            logger.info("Client completed sending requests");
-            requestObserver.onCompleted();
+    private static Flow.Publisher<HelloRequest> requestsFor(List<String> names) {
+        return FlowCalls.fromIterable(names.stream()
+                .map(name -> HelloRequest.newBuilder().setName(name).build())
+                .toList());
+    }
 
-            // Wait for server response
-            if (!finishLatch.await(30, TimeUnit.SECONDS)) {
-                logger.warn("Client stream timeout!");
-                return "Client stream timeout!";
-            }
+    /**
+     * Test server streaming RPC, completes with the number of responses
+     */
+    public CompletableFuture<Long> testServerStream(String name) {
+        logger.info("Testing server streaming RPC, name: {}", name);
+        HelloRequest request = HelloRequest.newBuilder().setName(name).build();
 
-            if (error.get() != null) {
-                throw new RuntimeException("Client stream error", error.get());
-            }
+        return FlowCalls.forEach(sayHellosServerStream(request), STREAM_PREFETCH,
+                        reply -> logger.info("Received server stream response: {}", reply.getMessage()))
+                .whenComplete((count, t) -> {
+                    if (t != null) {
+                        logger.error("Server stream error: {}", t.getMessage(), t);
+                    } else {
+                        logger.info("Server stream completed, received {} responses", count);
+                    }
+                });
+    }
 
-            return response.get();
+    /**
+     * Test client streaming RPC, completes with the server's summary message
+     */
+    public CompletableFuture<String> testClientStream(List<String> names) {
+        logger.info("Testing client streaming RPC, name list: {}", names);
 
-        } catch (InterruptedException e) {
-            logger.error("Interrupted while waiting for client stream completion", e);
-            Thread.currentThread().interrupt();
-            requestObserver.onError(e);
-            return "Client stream interrupted: " + e.getMessage();
-        } catch (Exception e) {
-            logger.error("Client stream processing error: {}", e.getMessage(), e);
-            requestObserver.onError(e);
-            return "Client stream error: " + e.getMessage();
-        }
+        return sayHellosClientStream(requestsFor(names))
+                .thenApply(reply -> {
+                    logger.info("Received client stream response: {}", reply.getMessage());
+                    return reply.getMessage();
+                })
+                .whenComplete((message, t) -> {
+                    if (t != null) {
+                        logger.error("Client stream error: {}", t.getMessage(), t);
+                    }
+                });
     }
 
     /**
-     * Test bidirectional streaming RPC
+     * Test bidirectional streaming RPC, completes with the number of responses
      */
-    public void testBidirectionalStream(List<String> names) {
+    public CompletableFuture<Long> testBidirectionalStream(List<String> names) {
         logger.info("Testing bidirectional streaming RPC, name list: {}", names);
 
-        final CountDownLatch finishLatch = new CountDownLatch(1);
-
-        StreamObserver<HelloReply> responseObserver = new StreamObserver<HelloReply>() {
-            int responseCount = 0;
-
-            @Override
-            public void onNext(HelloReply value) {
-                logger.info("Received bidirectional stream response #{}: {}", responseCount++, value.getMessage());
-            }
-
-            @Override
-            public void onError(Throwable t) {
-                logger.error("Bidirectional stream error: {}", t.getMessage(), t);
-                finishLatch.countDown();
-            }
-
-            @Override
-            public void onCompleted() {
-                logger.info("Bidirectional stream completed, received {} responses", responseCount);
-                finishLatch.countDown();
-            }
-        };
-
-        StreamObserver<HelloRequest> requestObserver = asyncStub.sayHellosBidirectional(responseObserver);
-
-        try {
-            for (String name : names) {
-                logger.info("Sending bidirectional stream request: {}", name);
-                HelloRequest request = HelloRequest.newBuilder().setName(name).build();
-                requestObserver.onNext(request);
-
-                // Brief delay to avoid sending too quickly
-                Thread.sleep(500);
-            }
-
-            logger.info("Client completed sending requests");
-            requestObserver.onCompleted();
-
-            // Wait for server completion
-            if (!finishLatch.await(30, TimeUnit.SECONDS)) {
-                logger.warn("Bidirectional stream timeout!");
-            }
-
-        } catch (InterruptedException e) {
-            logger.error("Interrupted while waiting for bidirectional stream completion", e);
-            Thread.currentThread().interrupt();
-            requestObserver.onError(e);
-        } catch (Exception e) {
-            logger.error("Bidirectional stream processing error: {}", e.getMessage(), e);
-            requestObserver.onError(e);
-        }
+        return FlowCalls.forEach(sayHellosBidirectional(requestsFor(names)), STREAM_PREFETCH,
+                        reply -> logger.info("Received bidirectional stream response: {}", reply.getMessage()))
+                .whenComplete((count, t) -> {
+                    if (t != null) {
+                        logger.error("Bidirectional stream error: {}", t.getMessage(), t);
+                    } else {
+                        logger.info("Bidirectional stream completed, received {} responses", count);
+                    }
+                });
     }
 
     /**
@@ -297,18 +346,18 @@ public class GrpcClient {
 
             // Test server streaming RPC
             System.out.println("\n=== Testing server streaming RPC ===");
-            client.testServerStream(userName);
+            client.testServerStream(userName).get(30, TimeUnit.SECONDS);
 
             // Test client streaming RPC
             System.out.println("\n=== Testing client streaming RPC ===");
             List<String> clientStreamMessages = List.of("Message 1", "Message 2", "Message 3", "Message 4", "Message 5");
-            String clientStreamResponse = client.testClientStream(clientStreamMessages);
+            String clientStreamResponse = client.testClientStream(clientStreamMessages).get(30, TimeUnit.SECONDS);
             System.out.println("Response from client stream: " + clientStreamResponse);
 
             // Test bidirectional streaming RPC
             System.out.println("\n=== Testing bidirectional streaming RPC ===");
             List<String> bidirectionalMessages = List.of("Bidirectional 1", "Bidirectional 2", "Bidirectional 3");
-            client.testBidirectionalStream(bidirectionalMessages);
+            client.testBidirectionalStream(bidirectionalMessages).get(30, TimeUnit.SECONDS);
 
         } finally {
             if (client != null) {
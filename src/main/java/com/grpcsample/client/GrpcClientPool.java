@@ -0,0 +1,397 @@
+package com.grpcsample.client;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 將呼叫分散到多個 channel (各自一條 HTTP/2 連線) 的 channel pool
+ *
+ * <p>每個目標位址開啟 {@code channelsPerTarget} 個 channel，避免所有呼叫擠在同一條連線的
+ * MAX_CONCURRENT_STREAMS 與單一 event loop 上。背景的健康檢查會略過 TRANSIENT_FAILURE 的
+ * channel，連續失敗多次後以新的 channel 取代；DNS 模式下同時重新解析目標並增減 channel。
+ */
+public class GrpcClientPool extends ManagedChannel {
+    private static final Logger logger = LoggerFactory.getLogger(GrpcClientPool.class);
+
+    // 連續幾次健康檢查都是 TRANSIENT_FAILURE 才重建 channel
+    private static final int EVICT_AFTER_FAILED_CHECKS = 3;
+
+    public enum Selection {
+        /** 依序輪流 */
+        ROUND_ROBIN,
+        /** 進行中呼叫最少的 channel */
+        LEAST_OUTSTANDING;
+
+        public static Selection parse(String value) {
+            return Selection.valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    public enum Resolver {
+        /** 啟動時解析一次，每個目標一個位址 */
+        STATIC,
+        /** 每個目標使用 DNS 回傳的所有位址，並在健康檢查時重新解析 */
+        DNS;
+
+        public static Resolver parse(String value) {
+            return Resolver.valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * @param targets             "host:port" 格式的目標
+     * @param healthCheckInterval 健康檢查間隔，0 表示不檢查
+     */
+    public record Options(List<String> targets, int channelsPerTarget, Selection selection, Resolver resolver,
+                          Duration healthCheckInterval) {
+    }
+
+    private static final class PooledChannel {
+        final InetSocketAddress address;
+        final ManagedChannel channel;
+        final AtomicInteger outstanding = new AtomicInteger();
+        // 只由健康檢查執行緒存取
+        int failedChecks = 0;
+
+        PooledChannel(InetSocketAddress address, ManagedChannel channel) {
+            this.address = address;
+            this.channel = channel;
+        }
+
+        boolean isHealthy() {
+            return channel.getState(false) != ConnectivityState.TRANSIENT_FAILURE;
+        }
+    }
+
+    private final Options options;
+    private final Function<InetSocketAddress, ManagedChannel> channelFactory;
+    private final ScheduledExecutorService healthChecker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Object lock = new Object();
+    // copy-on-write，選擇 channel 時不取鎖
+    private volatile PooledChannel[] channels;
+    // 被取代或移除、等待進行中呼叫結束的 channel
+    private final List<ManagedChannel> retired = new ArrayList<>();
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param channelFactory 建立連到指定位址的 channel (TLS、keepalive 等設定由呼叫端決定)
+     */
+    public GrpcClientPool(Options options, Function<InetSocketAddress, ManagedChannel> channelFactory) {
+        if (options.targets().isEmpty()) {
+            throw new IllegalArgumentException("At least one target is required");
+        }
+        this.options = options;
+        this.channelFactory = channelFactory;
+
+        List<PooledChannel> initial = new ArrayList<>();
+        for (InetSocketAddress address : resolve()) {
+            for (int i = 0; i < Math.max(1, options.channelsPerTarget()); i++) {
+                initial.add(new PooledChannel(address, channelFactory.apply(address)));
+            }
+        }
+        if (initial.isEmpty()) {
+            throw new IllegalArgumentException("No addresses resolved for " + options.targets());
+        }
+        this.channels = initial.toArray(new PooledChannel[0]);
+        logger.info("Channel pool opened {} channels to {} ({}, {})",
+                channels.length, options.targets(), options.selection(), options.resolver());
+
+        long intervalMillis = options.healthCheckInterval().toMillis();
+        if (intervalMillis > 0) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "grpc-pool-health");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            healthChecker = null;
+        }
+    }
+
+    private Set<InetSocketAddress> resolve() {
+        Set<InetSocketAddress> addresses = new LinkedHashSet<>();
+        for (String target : options.targets()) {
+            int colon = target.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Target must be host:port: " + target);
+            }
+            String host = target.substring(0, colon).replace("[", "").replace("]", "");
+            int port = Integer.parseInt(target.substring(colon + 1));
+            if (options.resolver() == Resolver.DNS) {
+                try {
+                    // getAllByName 保留主機名稱，TLS 仍以主機名稱驗證憑證
+                    for (InetAddress address : InetAddress.getAllByName(host)) {
+                        addresses.add(new InetSocketAddress(address, port));
+                    }
+                } catch (UnknownHostException e) {
+                    throw new IllegalStateException("Failed to resolve " + host, e);
+                }
+            } else {
+                addresses.add(new InetSocketAddress(host, port));
+            }
+        }
+        return addresses;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+        PooledChannel pooled = select();
+        return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(pooled.channel.newCall(method, callOptions)) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                pooled.outstanding.incrementAndGet();
+                try {
+                    super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                        @Override
+                        public void onClose(Status status, Metadata trailers) {
+                            pooled.outstanding.decrementAndGet();
+                            super.onClose(status, trailers);
+                        }
+                    }, headers);
+                } catch (RuntimeException e) {
+                    pooled.outstanding.decrementAndGet();
+                    throw e;
+                }
+            }
+        };
+    }
+
+    /**
+     * 略過 TRANSIENT_FAILURE 的 channel；全部失敗時仍回傳一個，讓呼叫以實際的錯誤結束
+     */
+    private PooledChannel select() {
+        PooledChannel[] all = channels;
+        int n = all.length;
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        if (options.selection() == Selection.ROUND_ROBIN) {
+            for (int i = 0; i < n; i++) {
+                PooledChannel candidate = all[(start + i) % n];
+                if (candidate.isHealthy()) {
+                    return candidate;
+                }
+            }
+            return all[start];
+        }
+
+        // 從輪替的起點開始掃描，數量相同時分散到不同 channel
+        PooledChannel best = null;
+        int bestOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            PooledChannel candidate = all[(start + i) % n];
+            int outstanding = candidate.outstanding.get();
+            if (outstanding < bestOutstanding && candidate.isHealthy()) {
+                best = candidate;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best != null ? best : all[start];
+    }
+
+    private void checkHealth() {
+        try {
+            if (options.resolver() == Resolver.DNS) {
+                refreshAddresses();
+            }
+            for (PooledChannel pooled : channels) {
+                // requestConnection=true 讓閒置的 channel 也保持連線
+                if (pooled.channel.getState(true) == ConnectivityState.TRANSIENT_FAILURE) {
+                    if (++pooled.failedChecks >= EVICT_AFTER_FAILED_CHECKS) {
+                        logger.warn("Evicting channel to {} after {} failed health checks",
+                                pooled.address, pooled.failedChecks);
+                        replace(pooled);
+                    }
+                } else {
+                    pooled.failedChecks = 0;
+                }
+            }
+            synchronized (lock) {
+                retired.removeIf(ManagedChannel::isTerminated);
+            }
+        } catch (Exception e) {
+            logger.warn("Channel pool health check failed: {}", e.getMessage());
+        }
+    }
+
+    private void replace(PooledChannel evicted) {
+        synchronized (lock) {
+            if (shutdown) {
+                return;
+            }
+            PooledChannel[] updated = channels.clone();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == evicted) {
+                    updated[i] = new PooledChannel(evicted.address, channelFactory.apply(evicted.address));
+                }
+            }
+            channels = updated;
+            retire(evicted.channel);
+        }
+    }
+
+    private void refreshAddresses() {
+        Set<InetSocketAddress> resolved;
+        try {
+            resolved = resolve();
+        } catch (IllegalStateException e) {
+            logger.warn("Keeping current addresses: {}", e.getMessage());
+            return;
+        }
+        if (resolved.isEmpty()) {
+            return;
+        }
+
+        synchronized (lock) {
+            if (shutdown) {
+                return;
+            }
+            List<PooledChannel> updated = new ArrayList<>();
+            Set<InetSocketAddress> existing = new LinkedHashSet<>();
+            for (PooledChannel pooled : channels) {
+                if (resolved.contains(pooled.address)) {
+                    updated.add(pooled);
+                    existing.add(pooled.address);
+                } else {
+                    logger.info("Address {} no longer resolved, closing its channel", pooled.address);
+                    retire(pooled.channel);
+                }
+            }
+            for (InetSocketAddress address : resolved) {
+                if (!existing.contains(address)) {
+                    logger.info("Adding channels for newly resolved address {}", address);
+                    for (int i = 0; i < Math.max(1, options.channelsPerTarget()); i++) {
+                        updated.add(new PooledChannel(address, channelFactory.apply(address)));
+                    }
+                }
+            }
+            channels = updated.toArray(new PooledChannel[0]);
+        }
+    }
+
+    // 必須持有 lock；graceful shutdown 讓進行中的呼叫完成
+    private void retire(ManagedChannel channel) {
+        channel.shutdown();
+        retired.add(channel);
+    }
+
+    /**
+     * 目前的 channel 數量
+     */
+    public int size() {
+        return channels.length;
+    }
+
+    @Override
+    public String authority() {
+        return channels[0].channel.authority();
+    }
+
+    /**
+     * 任一 channel READY 即為 READY，全部 TRANSIENT_FAILURE 才為 TRANSIENT_FAILURE
+     */
+    @Override
+    public ConnectivityState getState(boolean requestConnection) {
+        if (shutdown) {
+            return ConnectivityState.SHUTDOWN;
+        }
+        ConnectivityState best = ConnectivityState.TRANSIENT_FAILURE;
+        for (PooledChannel pooled : channels) {
+            ConnectivityState state = pooled.channel.getState(requestConnection);
+            if (state == ConnectivityState.READY) {
+                return state;
+            }
+            if (state == ConnectivityState.CONNECTING
+                    || (state == ConnectivityState.IDLE && best == ConnectivityState.TRANSIENT_FAILURE)) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public ManagedChannel shutdown() {
+        for (ManagedChannel channel : closeAll()) {
+            channel.shutdown();
+        }
+        return this;
+    }
+
+    @Override
+    public ManagedChannel shutdownNow() {
+        for (ManagedChannel channel : closeAll()) {
+            channel.shutdownNow();
+        }
+        return this;
+    }
+
+    private List<ManagedChannel> closeAll() {
+        synchronized (lock) {
+            shutdown = true;
+            if (healthChecker != null) {
+                healthChecker.shutdownNow();
+            }
+            List<ManagedChannel> all = new ArrayList<>(retired);
+            Arrays.stream(channels).forEach(pooled -> all.add(pooled.channel));
+            return all;
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        if (!shutdown) {
+            return false;
+        }
+        synchronized (lock) {
+            return retired.stream().allMatch(ManagedChannel::isTerminated)
+                    && Arrays.stream(channels).allMatch(pooled -> pooled.channel.isTerminated());
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<ManagedChannel> all;
+        synchronized (lock) {
+            all = new ArrayList<>(retired);
+            Arrays.stream(channels).forEach(pooled -> all.add(pooled.channel));
+        }
+        for (ManagedChannel channel : all) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !channel.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package com.grpcsample.client;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 同一個 JVM 內的 server 以 port 登記其 in-process 名稱，連到本機該 port 的 {@link GrpcClient}
+ * 會改用 in-process channel，不經過 loopback、TLS 與 HTTP/2
+ */
+public final class LocalServers {
+
+    private static final Set<String> LOOPBACK_HOSTS = Set.of("localhost", "127.0.0.1", "::1", "[::1]");
+
+    private static final Map<Integer, String> IN_PROCESS_NAMES = new ConcurrentHashMap<>();
+
+    private LocalServers() {
+    }
+
+    public static void register(int port, String inProcessName) {
+        IN_PROCESS_NAMES.put(port, inProcessName);
+    }
+
+    public static void unregister(int port) {
+        IN_PROCESS_NAMES.remove(port);
+    }
+
+    /**
+     * @return 對應的 in-process 名稱，host 不是本機或該 port 沒有登記時回傳 null
+     */
+    public static String lookup(String host, int port) {
+        if (!LOOPBACK_HOSTS.contains(host.toLowerCase())) {
+            return null;
+        }
+        return IN_PROCESS_NAMES.get(port);
+    }
+}
@@ -0,0 +1,70 @@
+package com.grpcsample.client;
+
+import com.grpcsample.config.AllocatorSettings;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * 客戶端 channel 的 Netty transport 設定，Linux 上優先使用原生 epoll
+ */
+public final class NettyClientTransport {
+
+    private NettyClientTransport() {
+    }
+
+    /**
+     * 所有客戶端 channel 共用的 epoll event loop，使用 daemon 執行緒不需關閉
+     */
+    private static final class EpollGroupHolder {
+        static final EventLoopGroup GROUP = new EpollEventLoopGroup(0, new DefaultThreadFactory("grpc-client-epoll", true));
+    }
+
+    /**
+     * 所有客戶端 channel 共用的 pooled allocator，設定來自 application.properties 的 grpc.client.netty.allocator.*
+     */
+    private static final class AllocatorHolder {
+        static final PooledByteBufAllocator ALLOCATOR = AllocatorSettings.fromProperties(
+                ClasspathProperties.load("application.properties"), "grpc.client.netty.allocator.").newAllocator();
+    }
+
+    public static PooledByteBufAllocator allocator() {
+        return AllocatorHolder.ALLOCATOR;
+    }
+
+    /**
+     * Epoll 可用時改用 epoll event loop 與 channel，否則保留 grpc 預設的 NIO
+     */
+    public static NettyChannelBuilder configure(NettyChannelBuilder builder) {
+        if (Epoll.isAvailable()) {
+            builder.eventLoopGroup(EpollGroupHolder.GROUP)
+                    .channelType(EpollSocketChannel.class);
+        }
+        return builder.withOption(ChannelOption.TCP_NODELAY, true)
+                .withOption(ChannelOption.ALLOCATOR, allocator());
+    }
+
+    /**
+     * 連到 Unix domain socket 的 channel builder，需要 epoll
+     *
+     * @param path socket 檔案路徑
+     */
+    public static NettyChannelBuilder forDomainSocket(String path) {
+        if (!Epoll.isAvailable()) {
+            throw new IllegalStateException("Unix domain sockets require the epoll transport", Epoll.unavailabilityCause());
+        }
+        return NettyChannelBuilder.forAddress(new DomainSocketAddress(path))
+                .eventLoopGroup(EpollGroupHolder.GROUP)
+                .channelType(EpollDomainSocketChannel.class)
+                .withOption(ChannelOption.ALLOCATOR, allocator())
+                // domain socket 位址不是合法的 authority，憑證也是簽給 localhost
+                .overrideAuthority("localhost");
+    }
+}
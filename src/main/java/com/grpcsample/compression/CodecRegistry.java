@@ -0,0 +1,115 @@
+package com.grpcsample.compression;
+
+import com.grpcsample.metrics.MetricsSource;
+import com.grpcsample.metrics.PrometheusTextWriter;
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 可用的訊息壓縮 codec，產生 server 與 channel builder 使用的 {@link CompressorRegistry} /
+ * {@link DecompressorRegistry}
+ *
+ * <p>一律包含 gzip，其他 codec (例如 LZ4、Zstd 的 {@link Codec} 實作) 由建構子傳入，
+ * 同名的 codec 會取代內建的實作。所有 codec 都會經過 {@link InstrumentedCodec} 統計壓縮率與 CPU 時間。
+ */
+public class CodecRegistry implements MetricsSource {
+
+    public static final String IDENTITY = Codec.Identity.NONE.getMessageEncoding();
+
+    private final Map<String, InstrumentedCodec> codecs = new LinkedHashMap<>();
+    private final CompressorRegistry compressorRegistry = CompressorRegistry.newEmptyInstance();
+    private final DecompressorRegistry decompressorRegistry;
+
+    public CodecRegistry(Collection<? extends Codec> extraCodecs) {
+        Map<String, Codec> byName = new LinkedHashMap<>();
+        byName.put("gzip", new Codec.Gzip());
+        for (Codec codec : extraCodecs) {
+            byName.put(codec.getMessageEncoding(), codec);
+        }
+
+        DecompressorRegistry decompressors = DecompressorRegistry.emptyInstance()
+                .with(Codec.Identity.NONE, false);
+        for (Codec codec : byName.values()) {
+            InstrumentedCodec instrumented = new InstrumentedCodec(codec);
+            codecs.put(codec.getMessageEncoding(), instrumented);
+            compressorRegistry.register(instrumented);
+            // advertised: 寫入 grpc-accept-encoding，對方才會選用這個 codec
+            decompressors = decompressors.with(instrumented, true);
+        }
+        decompressorRegistry = decompressors;
+    }
+
+    public CompressorRegistry compressorRegistry() {
+        return compressorRegistry;
+    }
+
+    public DecompressorRegistry decompressorRegistry() {
+        return decompressorRegistry;
+    }
+
+    /**
+     * 可用的 codec 名稱，不含 identity
+     */
+    public Set<String> names() {
+        return codecs.keySet();
+    }
+
+    /**
+     * @throws IllegalArgumentException 名稱不是 identity 也不是已註冊的 codec
+     */
+    public void checkKnown(String name) {
+        if (!IDENTITY.equals(name) && !codecs.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown compression codec '" + name + "', available: identity, "
+                    + String.join(", ", codecs.keySet()));
+        }
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        writer.declare("grpc_compression_messages_total", "counter", "Messages compressed or decompressed, by codec.");
+        writeEach(writer, "grpc_compression_messages_total", stats -> stats.messages.sum());
+
+        writer.declare("grpc_compression_uncompressed_bytes_total", "counter",
+                "Message bytes before compression or after decompression, by codec.");
+        writeEach(writer, "grpc_compression_uncompressed_bytes_total", stats -> stats.uncompressedBytes.sum());
+
+        writer.declare("grpc_compression_compressed_bytes_total", "counter",
+                "Compressed message bytes written or read, by codec.");
+        writeEach(writer, "grpc_compression_compressed_bytes_total", stats -> stats.compressedBytes.sum());
+
+        writer.declare("grpc_compression_ratio", "gauge", "Uncompressed bytes divided by compressed bytes since start.");
+        for (Map.Entry<String, InstrumentedCodec> entry : codecs.entrySet()) {
+            writeRatio(writer, entry.getKey(), "compress", entry.getValue().compressStats());
+            writeRatio(writer, entry.getKey(), "decompress", entry.getValue().decompressStats());
+        }
+
+        writer.declare("grpc_compression_cpu_seconds_total", "counter",
+                "Thread CPU time spent compressing or decompressing, by codec.");
+        writeEach(writer, "grpc_compression_cpu_seconds_total", stats -> stats.cpuNanos.sum() / 1e9);
+    }
+
+    private void writeEach(PrometheusTextWriter writer, String name, ToDoubleFunction<InstrumentedCodec.Stats> value) {
+        for (Map.Entry<String, InstrumentedCodec> entry : codecs.entrySet()) {
+            writer.sample(name, value.applyAsDouble(entry.getValue().compressStats()),
+                    "codec", entry.getKey(), "operation", "compress");
+            writer.sample(name, value.applyAsDouble(entry.getValue().decompressStats()),
+                    "codec", entry.getKey(), "operation", "decompress");
+        }
+    }
+
+    private static void writeRatio(PrometheusTextWriter writer, String codec, String operation,
+                                   InstrumentedCodec.Stats stats) {
+        long compressed = stats.compressedBytes.sum();
+        if (compressed > 0) {
+            writer.sample("grpc_compression_ratio", (double) stats.uncompressedBytes.sum() / compressed,
+                    "codec", codec, "operation", operation);
+        }
+    }
+}
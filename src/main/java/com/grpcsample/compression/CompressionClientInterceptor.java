@@ -0,0 +1,38 @@
+package com.grpcsample.compression;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.MethodDescriptor;
+
+/**
+ * 客戶端的訊息壓縮門檻：呼叫以 {@code withCompression} 指定 codec 時，小於門檻的請求不壓縮
+ *
+ * <p>門檻以 {@link #MIN_MESSAGE_BYTES} 放在 CallOptions，未設定時使用 {@link #DEFAULT_MIN_MESSAGE_BYTES}。
+ */
+public class CompressionClientInterceptor implements ClientInterceptor {
+
+    public static final int DEFAULT_MIN_MESSAGE_BYTES = 1024;
+
+    public static final CallOptions.Key<Integer> MIN_MESSAGE_BYTES =
+            CallOptions.Key.createWithDefault("grpcsample.compression.minMessageBytes", DEFAULT_MIN_MESSAGE_BYTES);
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+            MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+        ClientCall<ReqT, RespT> call = next.newCall(method, callOptions);
+        if (callOptions.getCompressor() == null) {
+            return call;
+        }
+        int minBytes = callOptions.getOption(MIN_MESSAGE_BYTES);
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+            @Override
+            public void sendMessage(ReqT message) {
+                setMessageCompression(MessageSizes.worthCompressing(message, minBytes));
+                super.sendMessage(message);
+            }
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.grpcsample.compression;
+
+import com.grpcsample.metrics.MetricsSource;
+import com.grpcsample.metrics.PrometheusTextWriter;
+import io.grpc.Codec;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 依方法選擇回應的壓縮 codec，並只壓縮不小於 {@code grpc.compression.min-bytes} 的訊息
+ *
+ * <p>codec 只有在客戶端的 grpc-accept-encoding 有列出時才會使用，否則 grpc 自動退回不壓縮。
+ * 其他 codec 以 {@link Codec} bean 註冊，即可在 {@code grpc.compression.methods} 中使用其名稱。
+ */
+@Component
+public class CompressionServerInterceptor implements ServerInterceptor, MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(CompressionServerInterceptor.class);
+
+    private final CodecRegistry codecs;
+    private final String defaultCodec;
+    private final Map<String, String> methodCodecs;
+    private final int minBytes;
+
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder skippedMessages = new LongAdder();
+
+    /**
+     * @param methods 以逗號分隔的 {@code 完整方法名稱=codec}，例如 greeting.GreetingService/sayHelloBatch=gzip
+     */
+    @Autowired
+    public CompressionServerInterceptor(ObjectProvider<Codec> extraCodecs,
+                                        @Value("${grpc.compression.default:identity}") String defaultCodec,
+                                        @Value("${grpc.compression.methods:}") String methods,
+                                        @Value("${grpc.compression.min-bytes:1024}") int minBytes) {
+        this(new CodecRegistry(extraCodecs.orderedStream().toList()), defaultCodec, methods, minBytes);
+    }
+
+    public CompressionServerInterceptor(CodecRegistry codecs, String defaultCodec, String methods, int minBytes) {
+        this.codecs = codecs;
+        this.defaultCodec = defaultCodec.trim();
+        this.methodCodecs = parseMethods(methods);
+        this.minBytes = minBytes;
+        codecs.checkKnown(this.defaultCodec);
+        methodCodecs.values().forEach(codecs::checkKnown);
+        logger.info("Response compression default {}, per method {}, min {} bytes, codecs {}",
+                this.defaultCodec, methodCodecs, minBytes, codecs.names());
+    }
+
+    private static Map<String, String> parseMethods(String methods) {
+        Map<String, String> result = new HashMap<>();
+        for (String entry : methods.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int eq = entry.lastIndexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected method=codec, got: " + entry);
+            }
+            result.put(entry.substring(0, eq).trim(), entry.substring(eq + 1).trim());
+        }
+        return result;
+    }
+
+    /**
+     * server builder 的 compressorRegistry / decompressorRegistry 需使用同一組 codec
+     */
+    public CodecRegistry codecs() {
+        return codecs;
+    }
+
+    String codecFor(String fullMethodName) {
+        return methodCodecs.getOrDefault(fullMethodName, defaultCodec);
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        String codec = codecFor(call.getMethodDescriptor().getFullMethodName());
+        if (CodecRegistry.IDENTITY.equals(codec)) {
+            return next.startCall(call, headers);
+        }
+        // 必須在 sendHeaders 之前設定
+        call.setCompression(codec);
+        return next.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+            @Override
+            public void sendMessage(RespT message) {
+                boolean compress = MessageSizes.worthCompressing(message, minBytes);
+                (compress ? compressedMessages : skippedMessages).increment();
+                setMessageCompression(compress);
+                super.sendMessage(message);
+            }
+        }, headers);
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        writer.declare("grpc_server_compression_eligible_messages_total", "counter",
+                "Responses on methods with compression enabled, by whether they reached the size threshold.");
+        writer.sample("grpc_server_compression_eligible_messages_total", compressedMessages.sum(), "compressed", "true");
+        writer.sample("grpc_server_compression_eligible_messages_total", skippedMessages.sum(), "compressed", "false");
+        codecs.writeMetrics(writer);
+    }
+}
@@ -0,0 +1,149 @@
+package com.grpcsample.compression;
+
+import io.grpc.Codec;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 包裝一個 {@link Codec}，統計壓縮前後的位元組數與壓縮/解壓縮耗用的 CPU 時間
+ *
+ * <p>CPU 時間以目前執行緒的 CPU time 計算 (不支援時改用經過時間)，只涵蓋 codec 串流上的讀寫。
+ */
+final class InstrumentedCodec implements Codec {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported()
+            && THREADS.isThreadCpuTimeEnabled();
+
+    /**
+     * 單一方向 (壓縮或解壓縮) 的累計值
+     */
+    static final class Stats {
+        final LongAdder messages = new LongAdder();
+        final LongAdder uncompressedBytes = new LongAdder();
+        final LongAdder compressedBytes = new LongAdder();
+        final LongAdder cpuNanos = new LongAdder();
+    }
+
+    private final Codec delegate;
+    private final Stats compress = new Stats();
+    private final Stats decompress = new Stats();
+
+    InstrumentedCodec(Codec delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String getMessageEncoding() {
+        return delegate.getMessageEncoding();
+    }
+
+    Stats compressStats() {
+        return compress;
+    }
+
+    Stats decompressStats() {
+        return decompress;
+    }
+
+    private static long now() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+        compress.messages.increment();
+        OutputStream compressed = delegate.compress(new FilterOutputStream(os) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                compress.compressedBytes.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                compress.compressedBytes.add(len);
+            }
+        });
+        return new FilterOutputStream(compressed) {
+            @Override
+            public void write(int b) throws IOException {
+                long start = now();
+                out.write(b);
+                compress.cpuNanos.add(now() - start);
+                compress.uncompressedBytes.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                long start = now();
+                out.write(b, off, len);
+                compress.cpuNanos.add(now() - start);
+                compress.uncompressedBytes.add(len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // close 時寫出剩餘的壓縮資料
+                long start = now();
+                out.close();
+                compress.cpuNanos.add(now() - start);
+            }
+        };
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) throws IOException {
+        decompress.messages.increment();
+        InputStream decompressed = delegate.decompress(new FilterInputStream(is) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b >= 0) {
+                    decompress.compressedBytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    decompress.compressedBytes.add(n);
+                }
+                return n;
+            }
+        });
+        return new FilterInputStream(decompressed) {
+            @Override
+            public int read() throws IOException {
+                long start = now();
+                int b = in.read();
+                decompress.cpuNanos.add(now() - start);
+                if (b >= 0) {
+                    decompress.uncompressedBytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long start = now();
+                int n = in.read(b, off, len);
+                decompress.cpuNanos.add(now() - start);
+                if (n > 0) {
+                    decompress.uncompressedBytes.add(n);
+                }
+                return n;
+            }
+        };
+    }
+}
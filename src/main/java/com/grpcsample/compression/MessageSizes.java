@@ -0,0 +1,29 @@
+package com.grpcsample.compression;
+
+import com.google.protobuf.MessageLite;
+import com.grpcsample.marshal.EncodedMessage;
+
+/**
+ * 決定單一訊息是否值得壓縮
+ */
+final class MessageSizes {
+
+    private MessageSizes() {
+    }
+
+    /**
+     * 無法得知大小的訊息型別一律壓縮，由 per-method 設定決定是否啟用
+     */
+    static boolean worthCompressing(Object message, int minBytes) {
+        if (minBytes <= 0) {
+            return true;
+        }
+        if (message instanceof MessageLite proto) {
+            return proto.getSerializedSize() >= minBytes;
+        }
+        if (message instanceof EncodedMessage<?> encoded) {
+            return encoded.serializedSize() >= minBytes;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package com.grpcsample.config;
+
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+
+import java.util.Properties;
+import java.util.function.UnaryOperator;
+
+/**
+ * Netty pooled allocator 的設定，server 與客戶端 transport 共用
+ *
+ * <p>chunk 為 arena 向系統配置記憶體的單位，必須是 pageSize 乘以 2 的次方。thread-local cache
+ * 讓同一個 event loop 重複使用剛釋放的 buffer，不需回到 arena 競爭鎖。
+ *
+ * @param directArenas          direct memory arena 數，0 表示不使用 direct buffer
+ * @param heapArenas            heap arena 數
+ * @param chunkSize             每個 chunk 的位元組數
+ * @param smallCacheSize        每個執行緒快取的 small buffer 數，0 表示停用
+ * @param normalCacheSize       每個執行緒快取的 normal buffer 數，0 表示停用
+ * @param useCacheForAllThreads false 時只有 Netty event loop 執行緒使用 thread-local cache
+ */
+public record AllocatorSettings(int directArenas, int heapArenas, int pageSize, int chunkSize,
+                                int smallCacheSize, int normalCacheSize, boolean useCacheForAllThreads) {
+
+    public static final AllocatorSettings DEFAULTS = new AllocatorSettings(
+            PooledByteBufAllocator.defaultNumDirectArena(),
+            PooledByteBufAllocator.defaultNumHeapArena(),
+            PooledByteBufAllocator.defaultPageSize(),
+            PooledByteBufAllocator.defaultPageSize() << PooledByteBufAllocator.defaultMaxOrder(),
+            PooledByteBufAllocator.defaultSmallCacheSize(),
+            PooledByteBufAllocator.defaultNormalCacheSize(),
+            PooledByteBufAllocator.defaultUseCacheForAllThreads());
+
+    public AllocatorSettings {
+        if (chunkSize < pageSize || chunkSize % pageSize != 0 || Integer.bitCount(chunkSize / pageSize) != 1) {
+            throw new IllegalArgumentException("chunkSize must be pageSize (" + pageSize
+                    + ") times a power of two, got " + chunkSize);
+        }
+    }
+
+    /**
+     * 讀取 {@code prefix} 開頭的設定，未設定或空白的項目使用 Netty 預設值
+     *
+     * @param lookup 屬性查詢，例如 {@code Properties::getProperty} 或 Spring 的 {@code Environment::getProperty}
+     */
+    public static AllocatorSettings from(UnaryOperator<String> lookup, String prefix) {
+        String useCacheForAllThreads = lookup.apply(prefix + "use-cache-for-all-threads");
+        return new AllocatorSettings(
+                intProperty(lookup, prefix + "direct-arenas", DEFAULTS.directArenas),
+                intProperty(lookup, prefix + "heap-arenas", DEFAULTS.heapArenas),
+                DEFAULTS.pageSize,
+                intProperty(lookup, prefix + "chunk-size", DEFAULTS.chunkSize),
+                intProperty(lookup, prefix + "small-cache-size", DEFAULTS.smallCacheSize),
+                intProperty(lookup, prefix + "normal-cache-size", DEFAULTS.normalCacheSize),
+                useCacheForAllThreads == null || useCacheForAllThreads.isBlank()
+                        ? DEFAULTS.useCacheForAllThreads
+                        : Boolean.parseBoolean(useCacheForAllThreads.trim()));
+    }
+
+    public static AllocatorSettings fromProperties(Properties properties, String prefix) {
+        return from(properties::getProperty, prefix);
+    }
+
+    private static int intProperty(UnaryOperator<String> lookup, String name, int defaultValue) {
+        String value = lookup.apply(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * @return 偏好 direct buffer 的 pooled allocator
+     */
+    public PooledByteBufAllocator newAllocator() {
+        int maxOrder = Integer.numberOfTrailingZeros(chunkSize / pageSize);
+        return new PooledByteBufAllocator(directArenas > 0, heapArenas, directArenas, pageSize, maxOrder,
+                smallCacheSize, normalCacheSize, useCacheForAllThreads);
+    }
+
+    @Override
+    public String toString() {
+        return "direct arenas " + directArenas + ", heap arenas " + heapArenas + ", chunk " + chunkSize
+                + " bytes, thread caches small " + smallCacheSize + " / normal " + normalCacheSize
+                + (useCacheForAllThreads ? " (all threads)" : " (event loops only)");
+    }
+}
@@ -0,0 +1,199 @@
+package com.grpcsample.config;
+
+import com.grpcsample.metrics.MetricsSource;
+import com.grpcsample.metrics.PrometheusTextWriter;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 定期檢查 keystore 檔案，內容變更時重建 server SslContext 並替換到 {@link ReloadableSslContext}
+ *
+ * <p>使用輪詢而非 WatchService：Kubernetes secret 等以 symlink 替換的檔案不一定會產生事件。
+ * 修改時間或大小改變後再比對內容雜湊，避免只有 touch 時重建。重建失敗時保留原本的 context。
+ */
+@Component
+public class KeystoreWatcher implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(KeystoreWatcher.class);
+
+    private final TlsConfigHelper tlsConfigHelper;
+    private final boolean enabled;
+    private final long intervalSeconds;
+
+    private volatile boolean watchRequested;
+    private volatile ReloadableSslContext sslContext;
+    private File keystoreFile;
+    private ScheduledExecutorService scheduler;
+
+    // 最後一次嘗試載入的檔案狀態，失敗的內容在檔案再次變更前不會重試
+    private long lastModified;
+    private long lastLength;
+    private byte[] lastDigest;
+
+    private final AtomicLong reloadSuccesses = new AtomicLong();
+    private final AtomicLong reloadFailures = new AtomicLong();
+    private volatile long lastReloadNanos;
+    private volatile long lastSuccessMillis;
+
+    public KeystoreWatcher(TlsConfigHelper tlsConfigHelper,
+                           @Value("${grpc.server.tls.reload.enabled:true}") boolean enabled,
+                           @Value("${grpc.server.tls.reload.interval-seconds:10}") long intervalSeconds) {
+        this.tlsConfigHelper = tlsConfigHelper;
+        this.enabled = enabled;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    /**
+     * 開始監看 keystore，回傳之後可被替換的 context；停用或 keystore 不在檔案系統上時直接回傳 initial
+     */
+    public synchronized SslContext watch(SslContext initial) {
+        watchRequested = true;
+        if (!enabled) {
+            return initial;
+        }
+        File file = tlsConfigHelper.keystoreFile();
+        if (file == null) {
+            logger.warn("Keystore is not a file on disk, TLS hot reload disabled; use a file: keystore-path to enable it");
+            return initial;
+        }
+        keystoreFile = file;
+        sslContext = new ReloadableSslContext(initial);
+        lastSuccessMillis = System.currentTimeMillis();
+        try {
+            remember(file, digest(file));
+        } catch (IOException e) {
+            logger.warn("Could not read keystore {}: {}", file, e.getMessage());
+        }
+        if (intervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "tls-keystore-watcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::checkForChanges, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+        logger.info("Watching keystore {} for changes every {} s", file, intervalSeconds);
+        return sslContext;
+    }
+
+    private void checkForChanges() {
+        try {
+            reloadIfChanged();
+        } catch (RuntimeException e) {
+            // 例外會取消排程，這裡只記錄
+            logger.error("Keystore check failed", e);
+        }
+    }
+
+    /**
+     * 檔案內容變更時重建 context
+     *
+     * @return 是否替換了 context
+     */
+    public synchronized boolean reloadIfChanged() {
+        if (sslContext == null) {
+            return false;
+        }
+        if (keystoreFile.lastModified() == lastModified && keystoreFile.length() == lastLength) {
+            return false;
+        }
+        byte[] digest;
+        try {
+            digest = digest(keystoreFile);
+        } catch (IOException e) {
+            // 檔案可能正在被替換，下次再試
+            logger.warn("Could not read keystore {}: {}", keystoreFile, e.getMessage());
+            return false;
+        }
+        boolean contentChanged = !Arrays.equals(digest, lastDigest);
+        remember(keystoreFile, digest);
+        if (!contentChanged) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            sslContext.reload(tlsConfigHelper.buildServerSslContext());
+        } catch (RuntimeException e) {
+            reloadFailures.incrementAndGet();
+            logger.error("Failed to reload keystore {}, keeping the current TLS context", keystoreFile, e);
+            return false;
+        } finally {
+            lastReloadNanos = System.nanoTime() - start;
+        }
+        reloadSuccesses.incrementAndGet();
+        lastSuccessMillis = System.currentTimeMillis();
+        logger.info("Reloaded keystore {} in {} ms, new TLS handshakes use the new certificate",
+                keystoreFile, TimeUnit.NANOSECONDS.toMillis(lastReloadNanos));
+        return true;
+    }
+
+    private void remember(File file, byte[] digest) {
+        lastModified = file.lastModified();
+        lastLength = file.length();
+        lastDigest = digest;
+    }
+
+    private static byte[] digest(File file) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isWatching() {
+        return sslContext != null;
+    }
+
+    public long reloadSuccesses() {
+        return reloadSuccesses.get();
+    }
+
+    public long reloadFailures() {
+        return reloadFailures.get();
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        if (!watchRequested) {
+            return;
+        }
+        // 啟用了重新載入但 keystore 不是檔案時為 0，避免誤以為憑證會自動更新
+        writer.declare("grpc_tls_reload_enabled", "gauge", "1 if the keystore file is watched for certificate rotation.")
+                .sample("grpc_tls_reload_enabled", sslContext != null ? 1 : 0);
+        if (sslContext == null) {
+            return;
+        }
+        writer.declare("grpc_tls_reloads_total", "counter", "Keystore reloads after the file changed, by result.");
+        writer.sample("grpc_tls_reloads_total", reloadSuccesses.get(), "result", "success");
+        writer.sample("grpc_tls_reloads_total", reloadFailures.get(), "result", "failure");
+
+        writer.declare("grpc_tls_reload_duration_seconds", "gauge", "Time taken by the last keystore reload attempt.");
+        writer.sample("grpc_tls_reload_duration_seconds", lastReloadNanos / 1e9);
+
+        writer.declare("grpc_tls_reload_last_success_timestamp_seconds", "gauge",
+                "Unix time the current TLS context was loaded.");
+        writer.sample("grpc_tls_reload_last_success_timestamp_seconds", lastSuccessMillis / 1000.0);
+    }
+}
@@ -0,0 +1,204 @@
+package com.grpcsample.config;
+
+import com.grpcsample.metrics.AllocatorMetrics;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.channel.ChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.ServerChannel;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollChannelOption;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollServerSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 建立 gRPC server 的 Netty transport，Linux 上優先使用原生 epoll，否則使用 NIO
+ *
+ * <p>另可建立同機 sidecar 使用的 Unix domain socket listener。
+ */
+@Component
+public class NettyTransportHelper {
+    private static final Logger logger = LoggerFactory.getLogger(NettyTransportHelper.class);
+
+    // auto | epoll | nio
+    @Value("${grpc.server.netty.transport:auto}")
+    private String transport;
+
+    @Value("${grpc.server.netty.boss-threads:1}")
+    private int bossThreads;
+
+    // 0 表示使用 Netty 預設值 (CPU 核心數 * 2)
+    @Value("${grpc.server.netty.worker-threads:0}")
+    private int workerThreads;
+
+    // 大於 1 時以 SO_REUSEPORT 在同一個 port 綁定多個 listener，由 kernel 分散連線 (需要 epoll)
+    @Value("${grpc.server.netty.listeners:1}")
+    private int listeners;
+
+    @Value("${grpc.server.netty.tcp-no-delay:true}")
+    private boolean tcpNoDelay;
+
+    // 0 表示使用作業系統預設值
+    @Value("${grpc.server.netty.so-rcvbuf:0}")
+    private int receiveBufferSize;
+
+    @Value("${grpc.server.netty.so-sndbuf:0}")
+    private int sendBufferSize;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private AllocatorMetrics allocatorMetrics;
+
+    private PooledByteBufAllocator allocator;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    // TCP listener 使用 NIO 時，domain socket 另外建立的 epoll group
+    private EventLoopGroup domainSocketGroup;
+
+    /**
+     * 建立監聽指定 port 的 server builder，event loop group 由本元件管理，需呼叫 {@link #shutdown()} 釋放
+     */
+    public NettyServerBuilder newServerBuilder(int port) {
+        boolean useEpoll = useEpoll();
+        Class<? extends ServerChannel> channelType;
+        if (useEpoll) {
+            bossGroup = new EpollEventLoopGroup(bossThreads, threadFactory("grpc-boss"));
+            workerGroup = new EpollEventLoopGroup(workerThreads, threadFactory("grpc-worker"));
+            channelType = EpollServerSocketChannel.class;
+        } else {
+            bossGroup = new NioEventLoopGroup(bossThreads, threadFactory("grpc-boss"));
+            workerGroup = new NioEventLoopGroup(workerThreads, threadFactory("grpc-worker"));
+            channelType = NioServerSocketChannel.class;
+        }
+
+        NettyServerBuilder builder = NettyServerBuilder.forAddress(new InetSocketAddress("0.0.0.0", port))
+                .bossEventLoopGroup(bossGroup)
+                .workerEventLoopGroup(workerGroup)
+                .channelType(channelType)
+                .withChildOption(ChannelOption.TCP_NODELAY, tcpNoDelay);
+        applyAllocator(builder);
+        if (receiveBufferSize > 0) {
+            builder.withChildOption(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+        if (sendBufferSize > 0) {
+            builder.withChildOption(ChannelOption.SO_SNDBUF, sendBufferSize);
+        }
+
+        if (listeners > 1) {
+            if (useEpoll) {
+                builder.withOption(EpollChannelOption.SO_REUSEPORT, true);
+                for (int i = 1; i < listeners; i++) {
+                    builder.addListenAddress(new InetSocketAddress("0.0.0.0", port));
+                }
+            } else {
+                logger.warn("SO_REUSEPORT requires the epoll transport, using a single listener");
+            }
+        }
+
+        logger.info("Using {} transport: boss threads={}, worker threads={}, listeners={}",
+                useEpoll ? "epoll" : "nio", bossThreads, workerThreads == 0 ? "default" : workerThreads,
+                useEpoll ? Math.max(1, listeners) : 1);
+        return builder;
+    }
+
+    /**
+     * 建立監聽 Unix domain socket 的 server builder (需要 epoll)，TCP listener 使用 epoll 時共用其 event loop
+     *
+     * <p>上次執行留下的 socket 檔案會先刪除，否則 bind 會失敗。
+     */
+    public NettyServerBuilder newDomainSocketServerBuilder(String path) throws IOException {
+        if (!Epoll.isAvailable()) {
+            throw new IllegalStateException("Unix domain sockets require the epoll transport",
+                    Epoll.unavailabilityCause());
+        }
+        Files.deleteIfExists(Path.of(path));
+
+        EventLoopGroup boss;
+        EventLoopGroup worker;
+        if (bossGroup instanceof EpollEventLoopGroup && workerGroup instanceof EpollEventLoopGroup) {
+            boss = bossGroup;
+            worker = workerGroup;
+        } else {
+            domainSocketGroup = new EpollEventLoopGroup(workerThreads, threadFactory("grpc-uds"));
+            boss = domainSocketGroup;
+            worker = domainSocketGroup;
+        }
+        logger.info("Listening on Unix domain socket {}", path);
+        return applyAllocator(NettyServerBuilder.forAddress(new DomainSocketAddress(path))
+                .bossEventLoopGroup(boss)
+                .workerEventLoopGroup(worker)
+                .channelType(EpollServerDomainSocketChannel.class));
+    }
+
+    /**
+     * 以 {@code grpc.server.netty.allocator.*} 建立的 pooled allocator 取代 grpc 預設的 allocator，所有 listener 共用
+     */
+    private NettyServerBuilder applyAllocator(NettyServerBuilder builder) {
+        if (allocator == null) {
+            AllocatorSettings settings = AllocatorSettings.from(environment::getProperty, "grpc.server.netty.allocator.");
+            allocator = settings.newAllocator();
+            allocatorMetrics.register("server", allocator);
+            logger.info("Pooled allocator: {}", settings);
+        }
+        return builder.withOption(ChannelOption.ALLOCATOR, allocator)
+                .withChildOption(ChannelOption.ALLOCATOR, allocator);
+    }
+
+    private boolean useEpoll() {
+        switch (transport.trim().toLowerCase()) {
+            case "nio":
+                return false;
+            case "epoll":
+                if (!Epoll.isAvailable()) {
+                    throw new IllegalStateException("Epoll transport requested but not available",
+                            Epoll.unavailabilityCause());
+                }
+                return true;
+            default:
+                if (!Epoll.isAvailable()) {
+                    logger.info("Epoll not available, falling back to NIO: {}",
+                            Epoll.unavailabilityCause().getMessage());
+                }
+                return Epoll.isAvailable();
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        return new DefaultThreadFactory(prefix, true);
+    }
+
+    /**
+     * 在 server 終止後關閉 event loop group
+     */
+    public void shutdown() {
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        }
+        if (domainSocketGroup != null) {
+            domainSocketGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.grpcsample.config;
+
+import io.grpc.netty.shaded.io.netty.buffer.ByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.handler.ssl.ApplicationProtocolNegotiator;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 可在執行期間替換的 SslContext
+ *
+ * <p>每次建立 SSLEngine 時讀取目前的 context，替換後只有新的握手使用新憑證，
+ * 既有連線的 engine 不受影響，不需要重新啟動 server。
+ */
+public final class ReloadableSslContext extends SslContext {
+
+    private final AtomicReference<SslContext> current;
+
+    public ReloadableSslContext(SslContext initial) {
+        checkServer(initial);
+        this.current = new AtomicReference<>(initial);
+    }
+
+    public SslContext current() {
+        return current.get();
+    }
+
+    /**
+     * 以新的 context 處理之後的握手，回傳被替換的 context
+     */
+    public SslContext reload(SslContext next) {
+        checkServer(next);
+        return current.getAndSet(next);
+    }
+
+    private static void checkServer(SslContext sslContext) {
+        if (!sslContext.isServer()) {
+            throw new IllegalArgumentException("Expected a server SslContext");
+        }
+    }
+
+    @Override
+    public boolean isClient() {
+        return false;
+    }
+
+    @Override
+    public List<String> cipherSuites() {
+        return current.get().cipherSuites();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public ApplicationProtocolNegotiator applicationProtocolNegotiator() {
+        return current.get().applicationProtocolNegotiator();
+    }
+
+    @Override
+    public SSLEngine newEngine(ByteBufAllocator alloc) {
+        return current.get().newEngine(alloc);
+    }
+
+    @Override
+    public SSLEngine newEngine(ByteBufAllocator alloc, String peerHost, int peerPort) {
+        return current.get().newEngine(alloc, peerHost, peerPort);
+    }
+
+    @Override
+    public SSLSessionContext sessionContext() {
+        return current.get().sessionContext();
+    }
+}
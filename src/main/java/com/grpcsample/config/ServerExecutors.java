@@ -0,0 +1,77 @@
+package com.grpcsample.config;
+
+import io.grpc.ServerBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gRPC server 執行 handler 的執行模型 (grpc.server.executor)
+ */
+public final class ServerExecutors {
+
+    // FIXED 模式在 handler 阻塞 (ForkJoinPool.managedBlock，例如 virtual thread 以外的 lock 或 I/O) 時可額外建立的執行緒數
+    private static final int MAX_COMPENSATION_THREADS = 256;
+
+    public enum Mode {
+        /** grpc-java 預設的 cached thread pool */
+        DEFAULT,
+        /** 每個呼叫一個 virtual thread，適合會阻塞在下游呼叫的 handler */
+        VIRTUAL,
+        /** 有上限的 fork-join pool */
+        FIXED,
+        /** 直接在 transport 執行緒執行，handler 必須完全不阻塞 */
+        DIRECT;
+
+        public static Mode parse(String value) {
+            return Mode.valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    private ServerExecutors() {
+    }
+
+    /**
+     * 建立指定模式的 executor，DEFAULT 與 DIRECT 不需要額外的 executor 而回傳 null
+     *
+     * @param threads FIXED 模式的執行緒上限，小於等於 0 時使用 CPU 核心數
+     */
+    public static ExecutorService create(Mode mode, int threads) {
+        switch (mode) {
+            case VIRTUAL:
+                return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-vthread-", 0).factory());
+            case FIXED:
+                int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+                ForkJoinPool.ForkJoinWorkerThreadFactory factory = pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("grpc-fj-" + thread.getPoolIndex());
+                    return thread;
+                };
+                // asyncMode=true 讓提交的任務以 FIFO 執行。handler 阻塞時 pool 會建立補償執行緒，
+                // 最多 MAX_COMPENSATION_THREADS 個；達到上限後 saturate 讓呼叫照常阻塞，而不是拋出 RejectedExecutionException
+                return new ForkJoinPool(parallelism, factory, null, true,
+                        parallelism, parallelism + MAX_COMPENSATION_THREADS, 1, pool -> true, 60, TimeUnit.SECONDS);
+            case DEFAULT:
+            case DIRECT:
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown executor mode: " + mode);
+        }
+    }
+
+    /**
+     * 將執行模型套用到 server builder
+     *
+     * @param executor {@link #create} 的回傳值
+     */
+    public static void apply(ServerBuilder<?> builder, Mode mode, ExecutorService executor) {
+        if (mode == Mode.DIRECT) {
+            builder.directExecutor();
+        } else if (executor != null) {
+            builder.executor(executor);
+        }
+    }
+}
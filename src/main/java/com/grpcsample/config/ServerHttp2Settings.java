@@ -0,0 +1,68 @@
+package com.grpcsample.config;
+
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server 端 HTTP/2 設定：flow-control window、訊息與 header 大小上限、每條連線的併發呼叫數與連線壽命
+ *
+ * <p>啟用 BDP 時 window 只是初始值，grpc 依量測到的 bandwidth-delay product 自動放大；
+ * 停用時固定使用設定值。max-connection-age 讓長連線定期重連，客戶端才會重新分散到新的後端。
+ */
+@Component
+public class ServerHttp2Settings {
+    private static final Logger logger = LoggerFactory.getLogger(ServerHttp2Settings.class);
+
+    @Value("${grpc.server.http2.flow-control-window:1048576}")
+    private int flowControlWindow;
+
+    @Value("${grpc.server.http2.bdp-auto-window:true}")
+    private boolean bdpAutoWindow;
+
+    @Value("${grpc.server.http2.max-inbound-message-size:4194304}")
+    private int maxInboundMessageSize;
+
+    // 0 表示不限制
+    @Value("${grpc.server.http2.max-concurrent-calls-per-connection:0}")
+    private int maxConcurrentCallsPerConnection;
+
+    @Value("${grpc.server.http2.max-header-list-size:8192}")
+    private int maxHeaderListSize;
+
+    // 0 表示不限制連線壽命
+    @Value("${grpc.server.http2.max-connection-age-seconds:0}")
+    private long maxConnectionAgeSeconds;
+
+    // 送出 GOAWAY 後等待進行中呼叫完成的時間
+    @Value("${grpc.server.http2.max-connection-age-grace-seconds:30}")
+    private long maxConnectionAgeGraceSeconds;
+
+    public NettyServerBuilder apply(NettyServerBuilder builder) {
+        if (bdpAutoWindow) {
+            builder.initialFlowControlWindow(flowControlWindow);
+        } else {
+            builder.flowControlWindow(flowControlWindow);
+        }
+        builder.maxInboundMessageSize(maxInboundMessageSize)
+                .maxInboundMetadataSize(maxHeaderListSize);
+        if (maxConcurrentCallsPerConnection > 0) {
+            builder.maxConcurrentCallsPerConnection(maxConcurrentCallsPerConnection);
+        }
+        if (maxConnectionAgeSeconds > 0) {
+            builder.maxConnectionAge(maxConnectionAgeSeconds, TimeUnit.SECONDS)
+                    .maxConnectionAgeGrace(maxConnectionAgeGraceSeconds, TimeUnit.SECONDS);
+        }
+        logger.info("HTTP/2 window {} bytes ({}), max message {} bytes, max header list {} bytes, "
+                        + "max calls per connection {}, max connection age {}",
+                flowControlWindow, bdpAutoWindow ? "BDP auto-tuned" : "fixed", maxInboundMessageSize,
+                maxHeaderListSize, maxConcurrentCallsPerConnection > 0 ? maxConcurrentCallsPerConnection : "unlimited",
+                maxConnectionAgeSeconds > 0
+                        ? maxConnectionAgeSeconds + " s + " + maxConnectionAgeGraceSeconds + " s grace" : "unlimited");
+        return builder;
+    }
+}
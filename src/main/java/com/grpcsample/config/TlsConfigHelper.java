@@ -3,8 +3,10 @@ package com.grpcsample.config;
 import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.shaded.io.netty.handler.ssl.ApplicationProtocolConfig;
 import io.grpc.netty.shaded.io.netty.handler.ssl.ApplicationProtocolNames;
+import io.grpc.netty.shaded.io.netty.handler.ssl.OpenSsl;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
 import io.grpc.netty.shaded.io.netty.handler.ssl.SslContextBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,8 +14,13 @@ import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import javax.net.ssl.KeyManagerFactory;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 @Component
 public class TlsConfigHelper {
@@ -31,6 +38,83 @@ public class TlsConfigHelper {
     @Value("${grpc.server.tls.key-alias}")
     private String keyAlias;
 
+    // auto | openssl | jdk，auto 在 netty-tcnative (BoringSSL) 可用時使用 OpenSSL
+    @Value("${grpc.server.tls.provider:auto}")
+    private String provider = "auto";
+
+    // 以逗號分隔，空白表示使用 provider 預設值
+    @Value("${grpc.server.tls.protocols:}")
+    private String protocols = "";
+
+    @Value("${grpc.server.tls.ciphers:}")
+    private String ciphers = "";
+
+    // 0 表示使用 provider 預設值
+    @Value("${grpc.server.tls.session-cache-size:20480}")
+    private long sessionCacheSize = 20480;
+
+    @Value("${grpc.server.tls.session-timeout-seconds:3600}")
+    private long sessionTimeoutSeconds = 3600;
+
+    public TlsConfigHelper() {
+    }
+
+    /**
+     * Create helper outside the Spring context (benchmarks, tools)
+     */
+    public TlsConfigHelper(Resource keystoreResource, String keystorePassword, String keystoreType, String keyAlias) {
+        this.keystoreResource = keystoreResource;
+        this.keystorePassword = keystorePassword;
+        this.keystoreType = keystoreType;
+        this.keyAlias = keyAlias;
+    }
+
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+
+    public void setProtocols(String protocols) {
+        this.protocols = protocols;
+    }
+
+    public void setCiphers(String ciphers) {
+        this.ciphers = ciphers;
+    }
+
+    public void setSessionCacheSize(long sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    public void setSessionTimeoutSeconds(long sessionTimeoutSeconds) {
+        this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+    }
+
+    /**
+     * auto | openssl | jdk，指定 openssl 但 netty-tcnative 無法載入時拋出例外
+     */
+    public static SslProvider resolveProvider(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "auto":
+                return OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+            case "openssl":
+                OpenSsl.ensureAvailability();
+                return SslProvider.OPENSSL;
+            case "jdk":
+                return SslProvider.JDK;
+            default:
+                throw new IllegalArgumentException("Unknown TLS provider: " + name);
+        }
+    }
+
+    /**
+     * 在背景執行緒載入 netty-tcnative 原生函式庫 (約數百毫秒)，讓它與 Spring 初始化同時進行
+     */
+    public static void preloadNativeLibrary() {
+        Thread thread = new Thread(OpenSsl::isAvailable, "tls-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     public SslContext buildServerSslContext() {
         try {
             logger.info("Building TLS context for gRPC server");
@@ -53,8 +137,30 @@ public class TlsConfigHelper {
             // 構建 SSL 上下文 - 顯式配置 ALPN
             SslContextBuilder sslBuilder = SslContextBuilder.forServer(kmf);
 
+            // OpenSSL (BoringSSL) 的握手成本明顯低於 JDK provider
+            SslProvider sslProvider = resolveProvider(provider);
+
             // 使用 gRPC 特定的 SSL 上下文構建器
-            SslContext sslContext = GrpcSslContexts.configure(sslBuilder)
+            GrpcSslContexts.configure(sslBuilder, sslProvider);
+
+            // Session cache 讓重新連線的客戶端以 session ID 恢復連線，略過完整握手；
+            // session ticket 在 BoringSSL 與 JDK 13+ 皆預設啟用
+            if (sessionCacheSize > 0) {
+                sslBuilder.sessionCacheSize(sessionCacheSize);
+            }
+            if (sessionTimeoutSeconds > 0) {
+                sslBuilder.sessionTimeout(sessionTimeoutSeconds);
+            }
+            List<String> protocolList = parseList(protocols);
+            if (!protocolList.isEmpty()) {
+                sslBuilder.protocols(protocolList);
+            }
+            List<String> cipherList = parseList(ciphers);
+            if (!cipherList.isEmpty()) {
+                sslBuilder.ciphers(cipherList);
+            }
+
+            SslContext sslContext = sslBuilder
                     // 重要 - 確保顯式支持 HTTP/2
                     .applicationProtocolConfig(new ApplicationProtocolConfig(
                             ApplicationProtocolConfig.Protocol.ALPN,
@@ -66,7 +172,9 @@ public class TlsConfigHelper {
                     ))
                     .build();
 
-            logger.info("Successfully built TLS context for gRPC server");
+            logger.info("Successfully built TLS context for gRPC server, provider {}, protocols {}, session cache {}",
+                    describe(sslProvider), protocolList.isEmpty() ? "default" : protocolList,
+                    sessionCacheSize > 0 ? sessionCacheSize : "default");
             return sslContext;
 
         } catch (Exception e) {
@@ -75,6 +183,31 @@ public class TlsConfigHelper {
         }
     }
 
+    private static String describe(SslProvider sslProvider) {
+        return sslProvider == SslProvider.JDK ? "JDK" : sslProvider + " (" + OpenSsl.versionString() + ")";
+    }
+
+    private static List<String> parseList(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Keystore 所在的檔案，keystore 不在檔案系統上 (例如打包在 jar 內) 時回傳 null
+     */
+    public File keystoreFile() {
+        try {
+            return keystoreResource.isFile() ? keystoreResource.getFile() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     private KeyStore loadKeyStore() {
         try {
             logger.info("Loading keystore from: {}", keystoreResource);
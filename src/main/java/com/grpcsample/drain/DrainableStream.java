@@ -0,0 +1,100 @@
+package com.grpcsample.drain;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 單一串流呼叫的開關狀態，讓 drain 可以從其他執行緒安全地結束串流
+ *
+ * <p>ServerCall 不能同時由兩個執行緒使用。handler 在每個 callback 前後呼叫 {@link #enter()} 與
+ * {@link #exit()}；drain 只在串流閒置時直接關閉，handler 正在處理時則由 exit() 在目前的批次送出後關閉。
+ * 串流建立時即為處理中，handler 設定完 observer 後呼叫 exit()，設定期間收到的 drain 也延到那時處理。
+ */
+public final class DrainableStream {
+    private static final int IDLE = 0;
+    private static final int BUSY = 1;
+    private static final int CLOSED = 2;
+
+    private static final Status DRAINING = Status.UNAVAILABLE.withDescription("Server is shutting down");
+
+    private final AtomicInteger state = new AtomicInteger(BUSY);
+    private final ServerCallStreamObserver<?> observer;
+    private final StreamDrainer drainer;
+    private volatile boolean drainRequested;
+
+    DrainableStream(ServerCallStreamObserver<?> observer, StreamDrainer drainer) {
+        this.observer = observer;
+        this.drainer = drainer;
+    }
+
+    /**
+     * 未追蹤 drain 的串流，例如 benchmark 直接建立的 GreetingService
+     */
+    public static DrainableStream untracked(ServerCallStreamObserver<?> observer) {
+        return new DrainableStream(observer, null);
+    }
+
+    /**
+     * @return false 表示串流已結束，callback 應直接返回
+     */
+    public boolean enter() {
+        return state.compareAndSet(IDLE, BUSY);
+    }
+
+    /**
+     * 離開 callback；處理期間收到 drain 時在此結束串流
+     */
+    public void exit() {
+        if (state.compareAndSet(BUSY, IDLE) && drainRequested && state.compareAndSet(IDLE, CLOSED)) {
+            closeForDrain();
+        }
+    }
+
+    /**
+     * handler 自行結束串流 (完成、錯誤或客戶端取消) 前呼叫
+     *
+     * @return true 表示由呼叫者負責送出 onCompleted/onError
+     */
+    public boolean close() {
+        if (state.getAndSet(CLOSED) == CLOSED) {
+            return false;
+        }
+        untrack(false);
+        return true;
+    }
+
+    public boolean isOpen() {
+        return state.get() != CLOSED;
+    }
+
+    /**
+     * handler 在長迴圈中檢查，收到 drain 後送完目前的批次就停止
+     */
+    public boolean isDrainRequested() {
+        return drainRequested;
+    }
+
+    void requestDrain() {
+        drainRequested = true;
+        if (state.compareAndSet(IDLE, CLOSED)) {
+            closeForDrain();
+        }
+    }
+
+    private void closeForDrain() {
+        untrack(true);
+        try {
+            observer.onError(DRAINING.asRuntimeException());
+        } catch (RuntimeException e) {
+            // 客戶端已先取消呼叫，串流已經結束
+        }
+    }
+
+    private void untrack(boolean closedByDrain) {
+        if (drainer != null) {
+            drainer.untrack(this, closedByDrain);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.grpcsample.drain;
+
+import com.grpcsample.metrics.MetricsSource;
+import com.grpcsample.metrics.PrometheusTextWriter;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 追蹤進行中的串流呼叫，server 停止時通知它們在目前的批次完成後結束
+ *
+ * <p>server.shutdown() 只停止接受新呼叫並送出 GOAWAY，既有的長串流仍會一直開著，
+ * 直到 shutdownNow() 強制中斷。{@link #drain()} 讓每個串流送完手上的回應後以 UNAVAILABLE 結束，
+ * 客戶端可立即重試到其他後端，而不是在逾時時一起重連。
+ */
+@Component
+public class StreamDrainer implements MetricsSource {
+
+    private final Set<DrainableStream> streams = ConcurrentHashMap.newKeySet();
+    private final LongAdder drained = new LongAdder();
+    private volatile boolean draining;
+
+    /**
+     * 建立串流的狀態並開始追蹤；回傳的串流處於處理中，handler 設定完 observer 後須呼叫
+     * {@link DrainableStream#exit()}。drain 開始後建立的串流在該次 exit() 時結束
+     */
+    public DrainableStream track(ServerCallStreamObserver<?> observer) {
+        DrainableStream stream = new DrainableStream(observer, this);
+        streams.add(stream);
+        if (draining) {
+            stream.requestDrain();
+        }
+        return stream;
+    }
+
+    void untrack(DrainableStream stream, boolean closedByDrain) {
+        streams.remove(stream);
+        if (closedByDrain) {
+            drained.increment();
+        }
+    }
+
+    /**
+     * 通知所有進行中的串流結束
+     *
+     * @return 收到通知的串流數
+     */
+    public int drain() {
+        draining = true;
+        int signalled = 0;
+        for (DrainableStream stream : streams) {
+            stream.requestDrain();
+            signalled++;
+        }
+        return signalled;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public int activeStreams() {
+        return streams.size();
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        writer.declare("grpc_server_draining", "gauge", "1 while the server is draining before shutdown.")
+                .sample("grpc_server_draining", draining ? 1 : 0);
+        writer.declare("grpc_server_drained_streams_total", "counter",
+                        "Streaming calls ended with UNAVAILABLE by the shutdown drain.")
+                .sample("grpc_server_drained_streams_total", drained.sum());
+    }
+}
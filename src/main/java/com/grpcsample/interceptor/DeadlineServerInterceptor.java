@@ -0,0 +1,43 @@
+package com.grpcsample.interceptor;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 呼叫開始時檢查客戶端的 deadline，已過期或剩餘時間不足以完成的呼叫直接以 DEADLINE_EXCEEDED 結束
+ *
+ * <p>請求在佇列中等待時 deadline 可能已經過了，此時呼叫 handler 只是替已放棄的客戶端做白工。
+ * 執行中的逾時與取消由各 handler 透過 {@code ServerCallStreamObserver.isCancelled()} 處理。
+ */
+public class DeadlineServerInterceptor implements ServerInterceptor {
+
+    private final long minRemainingNanos;
+
+    /**
+     * @param minRemaining 剩餘時間低於此值就不開始處理，0 表示只拒絕已過期的呼叫
+     */
+    public DeadlineServerInterceptor(Duration minRemaining) {
+        this.minRemainingNanos = minRemaining.toNanos();
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        Deadline deadline = Context.current().getDeadline();
+        if (deadline != null && deadline.timeRemaining(TimeUnit.NANOSECONDS) <= minRemainingNanos) {
+            call.close(Status.DEADLINE_EXCEEDED.withDescription(
+                    "Deadline too close to start the call: " + deadline), new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+        return next.startCall(call, headers);
+    }
+}
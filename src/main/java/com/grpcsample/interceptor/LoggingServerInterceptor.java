@@ -0,0 +1,92 @@
+package com.grpcsample.interceptor;
+
+import com.grpcsample.util.LogSampler;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 記錄 gRPC 呼叫的攔截器
+ *
+ * <p>只有被抽樣的呼叫會記錄開始/結束與訊息內容，失敗的呼叫則一律記錄。
+ * 未抽樣的呼叫不會建立字串或走訪 header。
+ */
+public class LoggingServerInterceptor implements ServerInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(LoggingServerInterceptor.class);
+
+    private final LogSampler sampler;
+
+    public LoggingServerInterceptor(LogSampler sampler) {
+        this.sampler = sampler;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        ServerCall<ReqT, RespT> errorLoggingCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+                // 錯誤不受抽樣影響
+                if (!status.isOk() && status.getCode() != Status.Code.CANCELLED && logger.isWarnEnabled()) {
+                    logger.warn("Request failed: method={}, peer={}, status={}, description={}",
+                            call.getMethodDescriptor().getFullMethodName(),
+                            call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR),
+                            status.getCode(), status.getDescription());
+                }
+                super.close(status, trailers);
+            }
+        };
+
+        if (!sampler.sample() || !logger.isInfoEnabled()) {
+            return next.startCall(errorLoggingCall, headers);
+        }
+
+        String methodName = call.getMethodDescriptor().getFullMethodName();
+        String peerAddress = String.valueOf(call.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR));
+
+        logger.info("Received request: method={}, peer={}", methodName, peerAddress);
+
+        // 打印所有頭部信息
+        if (logger.isDebugEnabled()) {
+            for (String key : headers.keys()) {
+                if (!key.endsWith("-bin")) {
+                    logger.debug("Header: {} = {}", key,
+                            headers.get(Metadata.Key.of(key, Metadata.ASCII_STRING_MARSHALLER)));
+                }
+            }
+        }
+
+        Context context = LogSampler.markSampled(Context.current());
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(
+                Contexts.interceptCall(context, errorLoggingCall, headers, next)) {
+            @Override
+            public void onMessage(ReqT message) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Received message: {}", message);
+                }
+                super.onMessage(message);
+            }
+
+            @Override
+            public void onCancel() {
+                logger.info("Client cancelled request: method={}, peer={}", methodName, peerAddress);
+                super.onCancel();
+            }
+
+            @Override
+            public void onComplete() {
+                logger.info("Request completed: method={}, peer={}", methodName, peerAddress);
+                super.onComplete();
+            }
+        };
+    }
+}
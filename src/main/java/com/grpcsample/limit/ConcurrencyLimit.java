@@ -0,0 +1,29 @@
+package com.grpcsample.limit;
+
+/**
+ * 同時處理中呼叫數的上限，依完成的呼叫調整
+ */
+public interface ConcurrencyLimit {
+
+    int getLimit();
+
+    /**
+     * @param rttNanos 呼叫耗時
+     * @param inFlight 呼叫完成時 (含本身) 進行中的呼叫數
+     * @param didDrop  呼叫因逾時等過載跡象失敗
+     */
+    void onSample(long rttNanos, int inFlight, boolean didDrop);
+
+    static ConcurrencyLimit fixed(int limit) {
+        return new ConcurrencyLimit() {
+            @Override
+            public int getLimit() {
+                return limit;
+            }
+
+            @Override
+            public void onSample(long rttNanos, int inFlight, boolean didDrop) {
+            }
+        };
+    }
+}
@@ -0,0 +1,218 @@
+package com.grpcsample.limit;
+
+import com.grpcsample.metrics.MetricsSource;
+import com.grpcsample.metrics.PrometheusTextWriter;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 依方法分別限制同時處理中的呼叫數，超過上限的呼叫立即以 RESOURCE_EXHAUSTED 拒絕
+ *
+ * <p>每個方法有各自的 {@link Gradient2Limit}，依該方法的延遲調整，串流 RPC 與 unary 互不影響。
+ * 長時間的串流可在 {@code grpc.server.limit.fixed} 改用固定上限。
+ */
+@Component
+@ConditionalOnProperty(name = "grpc.server.limit.enabled", havingValue = "true")
+public class ConcurrencyLimitServerInterceptor implements ServerInterceptor, MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitServerInterceptor.class);
+
+    private static final Status LIMIT_EXCEEDED = Status.RESOURCE_EXHAUSTED.withDescription("Concurrency limit exceeded");
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final Map<String, Integer> fixedLimits;
+    private final Map<String, MethodLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * @param fixed 以逗號分隔的 {@code 完整方法名稱=上限}，例如 greeting.GreetingService/sayHellosBidirectional=200
+     */
+    public ConcurrencyLimitServerInterceptor(@Value("${grpc.server.limit.initial:100}") int initialLimit,
+                                             @Value("${grpc.server.limit.min:10}") int minLimit,
+                                             @Value("${grpc.server.limit.max:2000}") int maxLimit,
+                                             @Value("${grpc.server.limit.fixed:}") String fixed) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.fixedLimits = parseFixed(fixed);
+        logger.info("Concurrency limit enabled, initial {}, range {}..{}, fixed {}",
+                initialLimit, minLimit, maxLimit, fixedLimits);
+    }
+
+    private static Map<String, Integer> parseFixed(String fixed) {
+        Map<String, Integer> limits = new HashMap<>();
+        for (String entry : fixed.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int eq = entry.lastIndexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected method=limit, got: " + entry);
+            }
+            limits.put(entry.substring(0, eq).trim(), Integer.parseInt(entry.substring(eq + 1).trim()));
+        }
+        return limits;
+    }
+
+    MethodLimiter forMethod(String fullMethodName) {
+        MethodLimiter limiter = limiters.get(fullMethodName);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(fullMethodName, name -> {
+                Integer fixed = fixedLimits.get(name);
+                return new MethodLimiter(name, fixed != null
+                        ? ConcurrencyLimit.fixed(fixed)
+                        : new Gradient2Limit(initialLimit, minLimit, maxLimit));
+            });
+        }
+        return limiter;
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+            ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        MethodLimiter limiter = forMethod(call.getMethodDescriptor().getFullMethodName());
+        if (!limiter.tryAcquire()) {
+            // 不進入 handler，拒絕的成本只有一次 close
+            call.close(LIMIT_EXCEEDED, new Metadata());
+            return new ServerCall.Listener<>() {
+            };
+        }
+
+        LimitedServerCall<ReqT, RespT> limitedCall = new LimitedServerCall<>(call, limiter);
+        ServerCall.Listener<ReqT> listener;
+        try {
+            listener = next.startCall(limitedCall, headers);
+        } catch (RuntimeException e) {
+            limitedCall.complete(Status.Code.UNKNOWN);
+            throw e;
+        }
+
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            @Override
+            public void onCancel() {
+                // server 端 deadline 到期也經由 onCancel 通知，這正是 Gradient2Limit 需要的過載訊號
+                Deadline deadline = Context.current().getDeadline();
+                limitedCall.complete(deadline != null && deadline.isExpired()
+                        ? Status.Code.DEADLINE_EXCEEDED : Status.Code.CANCELLED);
+                super.onCancel();
+            }
+        };
+    }
+
+    /**
+     * 單一方法的上限與進行中的呼叫數
+     */
+    static final class MethodLimiter {
+        private final String fullMethodName;
+        private final ConcurrencyLimit limit;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+
+        MethodLimiter(String fullMethodName, ConcurrencyLimit limit) {
+            this.fullMethodName = fullMethodName;
+            this.limit = limit;
+        }
+
+        boolean tryAcquire() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= limit.getLimit()) {
+                    rejected.increment();
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release(long rttNanos, Status.Code code) {
+            int current = inFlight.getAndDecrement();
+            // 客戶端主動取消的呼叫耗時不代表服務延遲，不作為樣本；逾時則作為 drop
+            if (code != Status.Code.CANCELLED) {
+                limit.onSample(rttNanos, current, code == Status.Code.DEADLINE_EXCEEDED);
+            }
+        }
+
+        int getLimit() {
+            return limit.getLimit();
+        }
+
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        long rejected() {
+            return rejected.sum();
+        }
+    }
+
+    private static final class LimitedServerCall<ReqT, RespT>
+            extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static final AtomicIntegerFieldUpdater<LimitedServerCall<?, ?>> COMPLETED =
+                (AtomicIntegerFieldUpdater) AtomicIntegerFieldUpdater.newUpdater(LimitedServerCall.class, "completed");
+
+        private final MethodLimiter limiter;
+        private final long startNanos = System.nanoTime();
+        private volatile int completed;
+
+        LimitedServerCall(ServerCall<ReqT, RespT> delegate, MethodLimiter limiter) {
+            super(delegate);
+            this.limiter = limiter;
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            complete(status.getCode());
+            super.close(status, trailers);
+        }
+
+        /**
+         * close 與 onCancel 可能都會發生，只釋放一次
+         */
+        void complete(Status.Code code) {
+            if (COMPLETED.compareAndSet(this, 0, 1)) {
+                limiter.release(System.nanoTime() - startNanos, code);
+            }
+        }
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        writer.declare("grpc_server_concurrency_limit", "gauge", "Current adaptive concurrency limit per method.");
+        for (MethodLimiter limiter : limiters.values()) {
+            writer.sample("grpc_server_concurrency_limit", limiter.getLimit(), "grpc_method", limiter.fullMethodName);
+        }
+
+        writer.declare("grpc_server_concurrency_limited_in_flight", "gauge", "Calls currently holding a concurrency permit.");
+        for (MethodLimiter limiter : limiters.values()) {
+            writer.sample("grpc_server_concurrency_limited_in_flight", limiter.inFlight(),
+                    "grpc_method", limiter.fullMethodName);
+        }
+
+        writer.declare("grpc_server_concurrency_rejected_total", "counter",
+                "Calls rejected with RESOURCE_EXHAUSTED because the concurrency limit was reached.");
+        for (MethodLimiter limiter : limiters.values()) {
+            writer.sample("grpc_server_concurrency_rejected_total", limiter.rejected(), "grpc_method", limiter.fullMethodName);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.grpcsample.limit;
+
+/**
+ * Gradient2 演算法：比較短期與長期延遲調整上限
+ *
+ * <p>長期延遲 (指數移動平均) 作為無排隊時的基準，目前延遲高於基準代表開始排隊，
+ * 上限依 {@code tolerance * longRtt / shortRtt} 的比例縮小；延遲穩定時每次加上 queueSize 慢慢放大。
+ * 進行中的呼叫不到上限一半時不調整，避免閒置時上限無限成長。
+ * 逾時 (drop) 時另外乘以 {@link #DROP_BACKOFF}，對應 AIMD 的乘法遞減。
+ */
+public final class Gradient2Limit implements ConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+    private static final int QUEUE_SIZE = 4;
+    private static final int LONG_WINDOW = 600;
+    private static final int WARMUP_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double estimatedLimit;
+    private volatile int limit;
+
+    // 長期延遲：前 WARMUP_SAMPLES 筆取平均，之後為指數移動平均
+    private double longRtt;
+    private int samples;
+
+    public Gradient2Limit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limit range: " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean didDrop) {
+        if (didDrop) {
+            update(estimatedLimit * DROP_BACKOFF);
+            return;
+        }
+        double shortRtt = Math.max(1, rttNanos);
+        updateLongRtt(shortRtt);
+
+        // 負載下降後長期延遲會偏高，逐步拉回以免延遲的回升被忽略
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + QUEUE_SIZE;
+        update(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private void updateLongRtt(double rtt) {
+        if (samples < WARMUP_SAMPLES) {
+            samples++;
+            longRtt += (rtt - longRtt) / samples;
+        } else {
+            double factor = 2.0 / (LONG_WINDOW + 1);
+            longRtt = longRtt * (1 - factor) + rtt * factor;
+        }
+    }
+
+    private void update(double newLimit) {
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
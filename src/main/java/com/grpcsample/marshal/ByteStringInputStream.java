@@ -0,0 +1,65 @@
+package com.grpcsample.marshal;
+
+import com.google.protobuf.ByteString;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 讓 gRPC 的 framer 得知長度並直接 drain 到輸出緩衝區，避免經過中間 buffer 複製
+ */
+final class ByteStringInputStream extends InputStream implements KnownLength, Drainable {
+    private ByteString bytes;
+    private InputStream partial;
+
+    ByteStringInputStream(ByteString bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+        int written;
+        if (bytes != null) {
+            written = bytes.size();
+            bytes.writeTo(target);
+            bytes = null;
+        } else if (partial != null) {
+            written = (int) partial.transferTo(target);
+            partial = null;
+        } else {
+            written = 0;
+        }
+        return written;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (bytes != null) {
+            return bytes.size();
+        }
+        return partial != null ? partial.available() : 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        InputStream in = stream();
+        return in != null ? in.read() : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        InputStream in = stream();
+        return in != null ? in.read(b, off, len) : -1;
+    }
+
+    private InputStream stream() {
+        if (bytes != null) {
+            partial = bytes.newInput();
+            bytes = null;
+        }
+        return partial;
+    }
+}
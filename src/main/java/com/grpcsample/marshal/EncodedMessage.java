@@ -0,0 +1,51 @@
+package com.grpcsample.marshal;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.MessageLite;
+
+/**
+ * 要送出的訊息，可以是一般的 protobuf 物件，或已經編碼好的位元組 (例如快取的回應)
+ */
+public final class EncodedMessage<T extends MessageLite> {
+    private final T message;
+    private final ByteString bytes;
+
+    private EncodedMessage(T message, ByteString bytes) {
+        this.message = message;
+        this.bytes = bytes;
+    }
+
+    public static <T extends MessageLite> EncodedMessage<T> of(T message) {
+        return new EncodedMessage<>(message, null);
+    }
+
+    /**
+     * @param bytes 型別 {@code T} 的 protobuf 編碼，呼叫端負責保證內容正確
+     */
+    public static <T extends MessageLite> EncodedMessage<T> ofBytes(ByteString bytes) {
+        return new EncodedMessage<>(null, bytes);
+    }
+
+    /**
+     * 已編碼時回傳 null
+     */
+    T message() {
+        return message;
+    }
+
+    ByteString bytes() {
+        return bytes;
+    }
+
+    /**
+     * 編碼後的位元組數，protobuf 物件的大小會被快取，之後序列化不需重算
+     */
+    public int serializedSize() {
+        return message != null ? message.getSerializedSize() : bytes.size();
+    }
+
+    @Override
+    public String toString() {
+        return message != null ? message.toString() : "<" + bytes.size() + " pre-encoded bytes>";
+    }
+}
@@ -0,0 +1,63 @@
+package com.grpcsample.marshal;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import io.grpc.Status;
+
+/**
+ * 保留原始位元組、第一次呼叫 {@link #get()} 時才解析的訊息
+ *
+ * <p>只需要位元組的處理 (例如以請求內容作為快取 key) 可直接使用 {@link #bytes()}，完全不解析。
+ * 同一個呼叫的訊息只會由一個執行緒處理，因此不需要同步。
+ */
+public final class LazyMessage<T extends MessageLite> {
+    private final ByteString bytes;
+    private final Parser<T> parser;
+    private T message;
+
+    LazyMessage(ByteString bytes, Parser<T> parser) {
+        this.bytes = bytes;
+        this.parser = parser;
+    }
+
+    /**
+     * 包裝已解析的訊息，{@link #bytes()} 會在第一次使用時編碼
+     */
+    public static <T extends MessageLite> LazyMessage<T> of(T message) {
+        @SuppressWarnings("unchecked")
+        LazyMessage<T> lazy = new LazyMessage<>(null, (Parser<T>) message.getParserForType());
+        lazy.message = message;
+        return lazy;
+    }
+
+    public ByteString bytes() {
+        return bytes != null ? bytes : message.toByteString();
+    }
+
+    public boolean isParsed() {
+        return message != null;
+    }
+
+    /**
+     * 解析訊息，格式錯誤時與 protobuf marshaller 一樣回報 INTERNAL
+     */
+    public T get() {
+        if (message == null) {
+            try {
+                message = parser.parseFrom(bytes);
+            } catch (InvalidProtocolBufferException e) {
+                throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence")
+                        .withCause(e).asRuntimeException();
+            }
+        }
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        // 只有 debug 日誌會用到，直接解析
+        return String.valueOf(get());
+    }
+}
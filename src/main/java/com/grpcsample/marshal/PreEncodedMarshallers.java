@@ -0,0 +1,140 @@
+package com.grpcsample.marshal;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 延遲解析請求、可直接送出已編碼回應的 marshaller，以及套用到既有服務定義的工具
+ *
+ * <p>線上的格式與 protobuf marshaller 完全相同，客戶端不需要任何修改。
+ */
+public final class PreEncodedMarshallers {
+
+    private PreEncodedMarshallers() {
+    }
+
+    /**
+     * 解析時只複製一次位元組 (大小與訊息相同)，等到 {@link LazyMessage#get()} 才解析
+     */
+    public static <T extends MessageLite> MethodDescriptor.Marshaller<LazyMessage<T>> lazy(Parser<T> parser) {
+        return new MethodDescriptor.Marshaller<>() {
+            @Override
+            public InputStream stream(LazyMessage<T> value) {
+                return new ByteStringInputStream(value.bytes());
+            }
+
+            @Override
+            public LazyMessage<T> parse(InputStream stream) {
+                try {
+                    // gRPC 傳入的 stream 已知長度，readNBytes 只配置剛好的大小
+                    byte[] bytes = stream instanceof KnownLength
+                            ? stream.readNBytes(stream.available())
+                            : stream.readAllBytes();
+                    return new LazyMessage<>(UnsafeByteOperations.unsafeWrap(bytes), parser);
+                } catch (IOException e) {
+                    throw Status.INTERNAL.withDescription("Failed to read message").withCause(e).asRuntimeException();
+                }
+            }
+        };
+    }
+
+    /**
+     * 已編碼的訊息直接寫出位元組，一般訊息交給 protobuf marshaller
+     */
+    public static <T extends Message> MethodDescriptor.Marshaller<EncodedMessage<T>> encoded(T defaultInstance) {
+        MethodDescriptor.Marshaller<T> proto = ProtoUtils.marshaller(defaultInstance);
+        return new MethodDescriptor.Marshaller<>() {
+            @Override
+            public InputStream stream(EncodedMessage<T> value) {
+                return value.message() != null
+                        ? proto.stream(value.message())
+                        : new ByteStringInputStream(value.bytes());
+            }
+
+            @Override
+            public EncodedMessage<T> parse(InputStream stream) {
+                return EncodedMessage.of(proto.parse(stream));
+            }
+        };
+    }
+
+    /**
+     * 原樣傳遞位元組，搭配 {@code ServerInterceptors.useMarshalledMessages} 強制每個訊息都經過序列化
+     */
+    public static MethodDescriptor.Marshaller<byte[]> bytes() {
+        return BYTES;
+    }
+
+    private static final MethodDescriptor.Marshaller<byte[]> BYTES = new MethodDescriptor.Marshaller<>() {
+        @Override
+        public InputStream stream(byte[] value) {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                return stream.readAllBytes();
+            } catch (IOException e) {
+                throw Status.INTERNAL.withDescription("Failed to read message").withCause(e).asRuntimeException();
+            }
+        }
+    };
+
+    /**
+     * 以 lazy/encoded marshaller 取代既有 protobuf 方法的 marshaller，方法名稱與 schema 不變
+     */
+    @SuppressWarnings("unchecked")
+    public static <ReqT extends MessageLite, RespT extends Message>
+    MethodDescriptor<LazyMessage<ReqT>, EncodedMessage<RespT>> preEncoded(MethodDescriptor<ReqT, RespT> method) {
+        ReqT request = ((MethodDescriptor.PrototypeMarshaller<ReqT>) method.getRequestMarshaller()).getMessagePrototype();
+        RespT response = ((MethodDescriptor.PrototypeMarshaller<RespT>) method.getResponseMarshaller()).getMessagePrototype();
+        return method.toBuilder(lazy((Parser<ReqT>) request.getParserForType()), encoded(response)).build();
+    }
+
+    /**
+     * 以相同名稱的方法定義取代服務中的方法，其餘方法保持原本的 marshaller 與 handler
+     */
+    public static ServerServiceDefinition override(ServerServiceDefinition service,
+                                                   ServerMethodDefinition<?, ?>... replacements) {
+        Map<String, ServerMethodDefinition<?, ?>> byName = new HashMap<>();
+        for (ServerMethodDefinition<?, ?> replacement : replacements) {
+            byName.put(replacement.getMethodDescriptor().getFullMethodName(), replacement);
+        }
+
+        ServiceDescriptor original = service.getServiceDescriptor();
+        ServiceDescriptor.Builder descriptor = ServiceDescriptor.newBuilder(original.getName())
+                .setSchemaDescriptor(original.getSchemaDescriptor());
+        List<ServerMethodDefinition<?, ?>> methods = new ArrayList<>();
+        for (ServerMethodDefinition<?, ?> method : service.getMethods()) {
+            ServerMethodDefinition<?, ?> replacement = byName.remove(method.getMethodDescriptor().getFullMethodName());
+            ServerMethodDefinition<?, ?> chosen = replacement != null ? replacement : method;
+            descriptor.addMethod(chosen.getMethodDescriptor());
+            methods.add(chosen);
+        }
+        if (!byName.isEmpty()) {
+            throw new IllegalArgumentException("Methods not in service " + original.getName() + ": " + byName.keySet());
+        }
+
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(descriptor.build());
+        methods.forEach(builder::addMethod);
+        return builder.build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.grpcsample.metrics;
+
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocatorMetric;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Netty pooled allocator 的記憶體用量，依 {@link #register} 時的名稱加上 allocator label
+ */
+@Component
+public class AllocatorMetrics implements MetricsSource {
+
+    private final Map<String, PooledByteBufAllocator> allocators = new ConcurrentHashMap<>();
+
+    public void register(String name, PooledByteBufAllocator allocator) {
+        allocators.put(name, allocator);
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        if (allocators.isEmpty()) {
+            return;
+        }
+        writer.declare("grpc_netty_allocator_used_bytes", "gauge",
+                "Memory reserved by the pooled allocator's arenas, by memory type.");
+        allocators.forEach((name, allocator) -> {
+            PooledByteBufAllocatorMetric metric = allocator.metric();
+            writer.sample("grpc_netty_allocator_used_bytes", metric.usedDirectMemory(), "allocator", name, "memory", "direct");
+            writer.sample("grpc_netty_allocator_used_bytes", metric.usedHeapMemory(), "allocator", name, "memory", "heap");
+        });
+
+        writer.declare("grpc_netty_allocator_pinned_bytes", "gauge",
+                "Memory held by buffers that are currently allocated, by memory type.");
+        allocators.forEach((name, allocator) -> {
+            writer.sample("grpc_netty_allocator_pinned_bytes", allocator.pinnedDirectMemory(), "allocator", name, "memory", "direct");
+            writer.sample("grpc_netty_allocator_pinned_bytes", allocator.pinnedHeapMemory(), "allocator", name, "memory", "heap");
+        });
+
+        writer.declare("grpc_netty_allocator_arenas", "gauge", "Arenas in the pooled allocator, by memory type.");
+        allocators.forEach((name, allocator) -> {
+            PooledByteBufAllocatorMetric metric = allocator.metric();
+            writer.sample("grpc_netty_allocator_arenas", metric.numDirectArenas(), "allocator", name, "memory", "direct");
+            writer.sample("grpc_netty_allocator_arenas", metric.numHeapArenas(), "allocator", name, "memory", "heap");
+        });
+
+        writer.declare("grpc_netty_allocator_active_arenas", "gauge",
+                "Arenas currently serving at least one thread cache, by memory type.");
+        allocators.forEach((name, allocator) -> {
+            PooledByteBufAllocatorMetric metric = allocator.metric();
+            writer.sample("grpc_netty_allocator_active_arenas",
+                    metric.directArenas().stream().filter(arena -> arena.numThreadCaches() > 0).count(),
+                    "allocator", name, "memory", "direct");
+            writer.sample("grpc_netty_allocator_active_arenas",
+                    metric.heapArenas().stream().filter(arena -> arena.numThreadCaches() > 0).count(),
+                    "allocator", name, "memory", "heap");
+        });
+
+        writer.declare("grpc_netty_allocator_thread_local_caches", "gauge", "Thread-local caches of the pooled allocator.");
+        allocators.forEach((name, allocator) ->
+                writer.sample("grpc_netty_allocator_thread_local_caches", allocator.metric().numThreadLocalCaches(),
+                        "allocator", name));
+
+        writer.declare("grpc_netty_allocator_chunk_size_bytes", "gauge", "Chunk size of the pooled allocator.");
+        allocators.forEach((name, allocator) ->
+                writer.sample("grpc_netty_allocator_chunk_size_bytes", allocator.metric().chunkSize(), "allocator", name));
+    }
+}
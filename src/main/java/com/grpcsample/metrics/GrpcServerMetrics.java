@@ -0,0 +1,197 @@
+package com.grpcsample.metrics;
+
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * gRPC server 各方法的呼叫統計
+ *
+ * <p>計數與延遲 bucket 都使用 LongAdder (分段計數避免快取行競爭)，
+ * 記錄路徑不取鎖也不配置記憶體。
+ */
+@Component
+public class GrpcServerMetrics implements MetricsSource {
+    private static final Status.Code[] CODES = Status.Code.values();
+
+    // 不在 server 方法表內的路徑共用的 grpc_method 標籤
+    static final String UNKNOWN_METHOD = "unknown";
+
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private final MethodMetrics unknown = new MethodMetrics(UNKNOWN_METHOD);
+
+    public GrpcServerMetrics() {
+        methods.put(UNKNOWN_METHOD, unknown);
+    }
+
+    /**
+     * 預先建立服務所有方法的統計，stream tracer 才能在第一個呼叫就找到對應的方法
+     */
+    public void register(ServerServiceDefinition service) {
+        for (ServerMethodDefinition<?, ?> method : service.getMethods()) {
+            forMethod(method.getMethodDescriptor().getFullMethodName());
+        }
+    }
+
+    /**
+     * 依方法名稱取得統計，不存在時建立；名稱必須來自 server 的方法表 (interceptor 看到的 MethodDescriptor)
+     */
+    public MethodMetrics forMethod(String fullMethodName) {
+        MethodMetrics metrics = methods.get(fullMethodName);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(fullMethodName, MethodMetrics::new);
+        }
+        return metrics;
+    }
+
+    /**
+     * 只查詢已註冊的方法，其餘歸入 {@code unknown}
+     *
+     * <p>stream tracer 在方法查找前就收到客戶端送來的任意路徑，若依此建立統計，
+     * 任何連線都能讓記憶體與 Prometheus series 無限成長。
+     */
+    public MethodMetrics lookup(String fullMethodName) {
+        return methods.getOrDefault(fullMethodName, unknown);
+    }
+
+    /**
+     * 所有方法目前進行中的呼叫數
+     */
+    public long inFlightCalls() {
+        long total = 0;
+        for (MethodMetrics metrics : methods.values()) {
+            total += metrics.inFlight.sum();
+        }
+        return total;
+    }
+
+    /**
+     * 單一方法的統計，所有欄位皆可由多個執行緒同時更新
+     */
+    public static final class MethodMetrics {
+        private final String fullMethodName;
+        final LongAdder started = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+        final LongAdder messagesReceived = new LongAdder();
+        final LongAdder messagesSent = new LongAdder();
+        final LongAdder wireBytesReceived = new LongAdder();
+        final LongAdder wireBytesSent = new LongAdder();
+        // 只記錄串流方法，unary 呼叫固定各一則訊息
+        final MessageCountHistogram messagesReceivedPerStream = new MessageCountHistogram();
+        final MessageCountHistogram messagesSentPerStream = new MessageCountHistogram();
+        private final LongAdder[] completed = new LongAdder[CODES.length];
+        // 依狀態碼延遲建立，多數方法只會出現少數幾種狀態碼
+        private final AtomicReferenceArray<LatencyHistogram> latency = new AtomicReferenceArray<>(CODES.length);
+
+        MethodMetrics(String fullMethodName) {
+            this.fullMethodName = fullMethodName;
+            for (int i = 0; i < CODES.length; i++) {
+                completed[i] = new LongAdder();
+            }
+        }
+
+        void callStarted() {
+            started.increment();
+            inFlight.increment();
+        }
+
+        void callCompleted(Status.Code code, long elapsedNanos) {
+            inFlight.decrement();
+            int index = code.ordinal();
+            completed[index].increment();
+            latencyHistogram(index).record(elapsedNanos);
+        }
+
+        void streamCompleted(long messagesReceived, long messagesSent) {
+            messagesReceivedPerStream.record(messagesReceived);
+            messagesSentPerStream.record(messagesSent);
+        }
+
+        private LatencyHistogram latencyHistogram(int index) {
+            LatencyHistogram histogram = latency.get(index);
+            if (histogram == null) {
+                latency.compareAndSet(index, null, new LatencyHistogram());
+                histogram = latency.get(index);
+            }
+            return histogram;
+        }
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        writer.declare("grpc_server_started_total", "counter", "Total number of RPCs started on the server.");
+        for (MethodMetrics m : methods.values()) {
+            writer.sample("grpc_server_started_total", m.started.sum(), "grpc_method", m.fullMethodName);
+        }
+
+        writer.declare("grpc_server_handled_total", "counter", "Total number of RPCs completed on the server, by status code.");
+        for (MethodMetrics m : methods.values()) {
+            for (int i = 0; i < CODES.length; i++) {
+                long count = m.completed[i].sum();
+                if (count > 0) {
+                    writer.sample("grpc_server_handled_total", count,
+                            "grpc_method", m.fullMethodName, "grpc_code", CODES[i].name());
+                }
+            }
+        }
+
+        writer.declare("grpc_server_in_flight", "gauge", "Number of RPCs currently in progress on the server.");
+        for (MethodMetrics m : methods.values()) {
+            writer.sample("grpc_server_in_flight", m.inFlight.sum(), "grpc_method", m.fullMethodName);
+        }
+
+        writer.declare("grpc_server_msg_received_total", "counter", "Total number of stream messages received from clients.");
+        for (MethodMetrics m : methods.values()) {
+            writer.sample("grpc_server_msg_received_total", m.messagesReceived.sum(), "grpc_method", m.fullMethodName);
+        }
+
+        writer.declare("grpc_server_msg_sent_total", "counter", "Total number of stream messages sent to clients.");
+        for (MethodMetrics m : methods.values()) {
+            writer.sample("grpc_server_msg_sent_total", m.messagesSent.sum(), "grpc_method", m.fullMethodName);
+        }
+
+        writer.declare("grpc_server_msg_received_per_stream", "histogram",
+                "Messages received from the client per streaming call.");
+        for (MethodMetrics m : methods.values()) {
+            if (!m.messagesReceivedPerStream.isEmpty()) {
+                m.messagesReceivedPerStream.writeTo(writer, "grpc_server_msg_received_per_stream",
+                        "grpc_method", m.fullMethodName);
+            }
+        }
+
+        writer.declare("grpc_server_msg_sent_per_stream", "histogram", "Messages sent to the client per streaming call.");
+        for (MethodMetrics m : methods.values()) {
+            if (!m.messagesSentPerStream.isEmpty()) {
+                m.messagesSentPerStream.writeTo(writer, "grpc_server_msg_sent_per_stream", "grpc_method", m.fullMethodName);
+            }
+        }
+
+        writer.declare("grpc_server_wire_bytes_received_total", "counter", "Total compressed message bytes received.");
+        for (MethodMetrics m : methods.values()) {
+            writer.sample("grpc_server_wire_bytes_received_total", m.wireBytesReceived.sum(), "grpc_method", m.fullMethodName);
+        }
+
+        writer.declare("grpc_server_wire_bytes_sent_total", "counter", "Total compressed message bytes sent.");
+        for (MethodMetrics m : methods.values()) {
+            writer.sample("grpc_server_wire_bytes_sent_total", m.wireBytesSent.sum(), "grpc_method", m.fullMethodName);
+        }
+
+        writer.declare("grpc_server_handling_seconds", "histogram", "Server-side RPC latency, by status code.");
+        for (MethodMetrics m : methods.values()) {
+            for (int i = 0; i < CODES.length; i++) {
+                LatencyHistogram histogram = m.latency.get(i);
+                if (histogram == null) {
+                    continue;
+                }
+                histogram.writeTo(writer, "grpc_server_handling_seconds",
+                        "grpc_method", m.fullMethodName, "grpc_code", CODES[i].name());
+            }
+        }
+    }
+}
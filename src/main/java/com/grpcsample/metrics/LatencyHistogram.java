@@ -0,0 +1,57 @@
+package com.grpcsample.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定 bucket 的延遲直方圖，bucket 與 Prometheus 輸出一致，分位數由 Prometheus 端計算
+ */
+final class LatencyHistogram {
+
+    // Prometheus histogram 的 bucket 上限 (秒)
+    private static final double[] BUCKETS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+            0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+    private static final long[] BUCKETS_NANOS = Arrays.stream(BUCKETS_SECONDS)
+            .mapToLong(seconds -> (long) (seconds * TimeUnit.SECONDS.toNanos(1)))
+            .toArray();
+
+    // 最後一格為超過最大 bucket 的數量 (+Inf)
+    private final LongAdder[] buckets = new LongAdder[BUCKETS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos) {
+        int index = Arrays.binarySearch(BUCKETS_NANOS, nanos);
+        // 未找到時 binarySearch 回傳 -(插入點) - 1，插入點即為第一個大於 nanos 的 bucket
+        buckets[index >= 0 ? index : -index - 1].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * 輸出 name_bucket / name_sum / name_count，labels 為 name, value 交錯排列
+     */
+    void writeTo(PrometheusTextWriter writer, String name, String... labels) {
+        String[] bucketLabels = Arrays.copyOf(labels, labels.length + 2);
+        bucketLabels[labels.length] = "le";
+        // Prometheus bucket 為累積值
+        long cumulative = 0;
+        for (int b = 0; b < BUCKETS_SECONDS.length; b++) {
+            cumulative += buckets[b].sum();
+            bucketLabels[labels.length + 1] = Double.toString(BUCKETS_SECONDS[b]);
+            writer.sample(name + "_bucket", cumulative, bucketLabels);
+        }
+        cumulative += buckets[BUCKETS_SECONDS.length].sum();
+        bucketLabels[labels.length + 1] = "+Inf";
+        writer.sample(name + "_bucket", cumulative, bucketLabels);
+        writer.sample(name + "_sum", sumNanos.sum() / 1e9, labels);
+        writer.sample(name + "_count", cumulative, labels);
+    }
+}
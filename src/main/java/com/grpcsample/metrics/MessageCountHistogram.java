@@ -0,0 +1,61 @@
+package com.grpcsample.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每個串流的訊息數分布，bucket 為 4 的次方，與 {@link LatencyHistogram} 相同以 Prometheus histogram 輸出
+ */
+final class MessageCountHistogram {
+
+    private static final long[] BUCKETS = {
+            0, 1, 4, 16, 64, 256, 1024, 4096, 16384, 65536, 262144, 1048576
+    };
+
+    // 最後一格為超過最大 bucket 的數量 (+Inf)
+    private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+    private final LongAdder sum = new LongAdder();
+
+    MessageCountHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long messages) {
+        int index = 0;
+        while (index < BUCKETS.length && messages > BUCKETS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        sum.add(messages);
+    }
+
+    boolean isEmpty() {
+        for (LongAdder bucket : buckets) {
+            if (bucket.sum() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 輸出 name_bucket / name_sum / name_count，labels 為 name, value 交錯排列
+     */
+    void writeTo(PrometheusTextWriter writer, String name, String... labels) {
+        String[] bucketLabels = Arrays.copyOf(labels, labels.length + 2);
+        bucketLabels[labels.length] = "le";
+        long cumulative = 0;
+        for (int b = 0; b < BUCKETS.length; b++) {
+            cumulative += buckets[b].sum();
+            bucketLabels[labels.length + 1] = Long.toString(BUCKETS[b]);
+            writer.sample(name + "_bucket", cumulative, bucketLabels);
+        }
+        cumulative += buckets[BUCKETS.length].sum();
+        bucketLabels[labels.length + 1] = "+Inf";
+        writer.sample(name + "_bucket", cumulative, bucketLabels);
+        writer.sample(name + "_sum", sum.sum(), labels);
+        writer.sample(name + "_count", cumulative, labels);
+    }
+}
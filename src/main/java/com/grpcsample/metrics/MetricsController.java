@@ -0,0 +1,27 @@
+package com.grpcsample.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Prometheus scrape endpoint，輸出所有 {@link MetricsSource} 的指標
+ */
+@RestController
+public class MetricsController {
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Autowired
+    private List<MetricsSource> sources;
+
+    @GetMapping(value = "${grpc.metrics.path:/metrics}", produces = PROMETHEUS_TEXT)
+    public String scrape() {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        for (MetricsSource source : sources) {
+            source.writeMetrics(writer);
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.grpcsample.metrics;
+
+/**
+ * 提供 Prometheus 指標的元件，由 {@link MetricsController} 在 scrape 時收集
+ */
+public interface MetricsSource {
+
+    void writeMetrics(PrometheusTextWriter writer);
+}
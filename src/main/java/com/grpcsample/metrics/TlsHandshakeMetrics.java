@@ -0,0 +1,185 @@
+package com.grpcsample.metrics;
+
+import io.grpc.Attributes;
+import io.grpc.Grpc;
+import io.grpc.ServerTransportFilter;
+import io.grpc.netty.shaded.io.netty.handler.ssl.DelegatingSslContext;
+import io.grpc.netty.shaded.io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import io.grpc.netty.shaded.io.netty.internal.tcnative.SSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Server 端 TLS 握手的次數與耗時，區分完整握手與 session 恢復
+ *
+ * <p>{@link #instrument(SslContext)} 記錄每個 SSLEngine 建立的時間，{@link #transportFilter()}
+ * 在連線就緒 (握手與 HTTP/2 preface 完成) 時以 SSLSession 找回對應的 engine 計算耗時。
+ * OpenSSL engine 的 SSLSession 物件在建立時就固定；JDK engine 握手時才建立 session，
+ * 因此在握手中的 ALPN 選擇時以 handshake session 登記。兩者都以 identity 查詢，不需掃描。
+ * 逾時仍未就緒或已關閉的 engine 計為失敗。
+ */
+@Component
+public class TlsHandshakeMetrics implements MetricsSource {
+    private static final Logger logger = LoggerFactory.getLogger(TlsHandshakeMetrics.class);
+
+    private static final long PENDING_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // 超過此數量時在建立 engine 時順便清除過期項目，避免握手失敗的連線累積
+    private static final int PENDING_SWEEP_THRESHOLD = 1024;
+
+    private record Pending(SSLEngine engine, long startNanos, long startMillis) {
+    }
+
+    // 尚未取得 SSLSession 的 JDK engine
+    private final Map<SSLEngine, Pending> starting = new ConcurrentHashMap<>();
+    // SSLSession 的 equals 依 session ID 比較，恢復的連線可能相同，必須以 identity 查詢
+    private final Map<SSLSession, Pending> pending = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder resumedHandshakes = new LongAdder();
+    private final LongAdder failedHandshakes = new LongAdder();
+    private final LatencyHistogram fullLatency = new LatencyHistogram();
+    private final LatencyHistogram resumedLatency = new LatencyHistogram();
+
+    /**
+     * 包裝 server 的 SslContext，記錄每個新連線的握手開始時間
+     */
+    public SslContext instrument(SslContext sslContext) {
+        return new DelegatingSslContext(sslContext) {
+            @Override
+            protected void initEngine(SSLEngine engine) {
+                track(new Pending(engine, System.nanoTime(), System.currentTimeMillis()));
+                if (starting.size() + pending.size() > PENDING_SWEEP_THRESHOLD) {
+                    expirePending(System.nanoTime());
+                }
+            }
+        };
+    }
+
+    private void track(Pending start) {
+        SSLEngine engine = start.engine();
+        if (engine instanceof ReferenceCountedOpenSslEngine) {
+            pending.put(engine.getSession(), start);
+            return;
+        }
+        BiFunction<SSLEngine, List<String>, String> alpn = engine.getHandshakeApplicationProtocolSelector();
+        if (alpn == null) {
+            // grpc 一律使用 ALPN；沒有 selector 時無法在握手中取得 session，不記錄這個連線
+            return;
+        }
+        starting.put(engine, start);
+        engine.setHandshakeApplicationProtocolSelector((handshakeEngine, protocols) -> {
+            SSLSession session = handshakeEngine.getHandshakeSession();
+            if (session != null && starting.remove(engine) != null) {
+                pending.put(session, start);
+            }
+            return alpn.apply(handshakeEngine, protocols);
+        });
+    }
+
+    /**
+     * 連線就緒時結束計時，需與 {@link #instrument(SslContext)} 包裝的 SslContext 一起使用
+     */
+    public ServerTransportFilter transportFilter() {
+        return new ServerTransportFilter() {
+            @Override
+            public Attributes transportReady(Attributes attrs) {
+                SSLSession session = attrs.get(Grpc.TRANSPORT_ATTR_SSL_SESSION);
+                if (session != null) {
+                    handshakeCompleted(session, System.nanoTime());
+                }
+                return attrs;
+            }
+        };
+    }
+
+    private void handshakeCompleted(SSLSession session, long nowNanos) {
+        Pending start = pending.remove(session);
+        if (start == null) {
+            return;
+        }
+        long elapsedNanos = nowNanos - start.startNanos();
+        boolean resumed = isResumed(start.engine(), session, start.startMillis());
+        if (resumed) {
+            resumedHandshakes.increment();
+            resumedLatency.record(elapsedNanos);
+        } else {
+            fullHandshakes.increment();
+            fullLatency.record(elapsedNanos);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("TLS handshake {} in {} µs, protocol {}, cipher {}", resumed ? "resumed" : "full",
+                    TimeUnit.NANOSECONDS.toMicros(elapsedNanos), session.getProtocol(), session.getCipherSuite());
+        }
+    }
+
+    /**
+     * OpenSSL engine 直接詢問 BoringSSL；JDK engine 沒有對應 API，
+     * 以 session 建立時間早於本次握手判斷為恢復的 session
+     */
+    private static boolean isResumed(SSLEngine engine, SSLSession session, long startMillis) {
+        if (engine instanceof ReferenceCountedOpenSslEngine openSslEngine) {
+            long ssl = openSslEngine.sslPointer();
+            if (ssl != 0) {
+                return SSL.isSessionReused(ssl);
+            }
+        }
+        return session.getCreationTime() < startMillis;
+    }
+
+    private void expirePending(long nowNanos) {
+        starting.values().removeIf(start -> expire(start, nowNanos));
+        synchronized (pending) {
+            pending.values().removeIf(start -> expire(start, nowNanos));
+        }
+    }
+
+    private boolean expire(Pending start, long nowNanos) {
+        if (start.engine().isOutboundDone() || nowNanos - start.startNanos() > PENDING_TIMEOUT_NANOS) {
+            failedHandshakes.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public long fullHandshakes() {
+        return fullHandshakes.sum();
+    }
+
+    public long resumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+
+    public long failedHandshakes() {
+        expirePending(System.nanoTime());
+        return failedHandshakes.sum();
+    }
+
+    @Override
+    public void writeMetrics(PrometheusTextWriter writer) {
+        expirePending(System.nanoTime());
+
+        writer.declare("grpc_tls_handshakes_total", "counter", "Completed TLS handshakes, full or resumed session.");
+        writer.sample("grpc_tls_handshakes_total", fullHandshakes.sum(), "type", "full");
+        writer.sample("grpc_tls_handshakes_total", resumedHandshakes.sum(), "type", "resumed");
+
+        writer.declare("grpc_tls_handshake_failures_total", "counter",
+                "TLS connections closed or timed out before the transport became ready.");
+        writer.sample("grpc_tls_handshake_failures_total", failedHandshakes.sum());
+
+        writer.declare("grpc_tls_handshake_seconds", "histogram", "Time from TLS engine creation to transport ready.");
+        fullLatency.writeTo(writer, "grpc_tls_handshake_seconds", "type", "full");
+        resumedLatency.writeTo(writer, "grpc_tls_handshake_seconds", "type", "resumed");
+    }
+}
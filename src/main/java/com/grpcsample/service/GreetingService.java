@@ -1,35 +1,123 @@
 package com.grpcsample.service;
 
+import com.grpcsample.aggregation.ClientStreamAggregator;
+import com.grpcsample.cache.ReplyCache;
+import com.grpcsample.drain.DrainableStream;
+import com.grpcsample.drain.StreamDrainer;
 import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloBatchReply;
+import com.grpcsample.grpc.HelloBatchRequest;
 import com.grpcsample.grpc.HelloReply;
 import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.grpc.StreamSummary;
+import com.grpcsample.marshal.EncodedMessage;
+import com.grpcsample.marshal.LazyMessage;
+import com.grpcsample.marshal.PreEncodedMarshallers;
+import com.grpcsample.util.LogSampler;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Service
 public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase {
     private static final Logger logger = LoggerFactory.getLogger(GreetingService.class);
 
+    // Replies sent by sayHellosServerStream when the request does not set reply_count
+    private static final int DEFAULT_STREAM_REPLIES = 5;
+
+    // Batch entries built between checks for a cancelled call or an expired deadline
+    private static final int CANCELLATION_CHECK_INTERVAL = 64;
+
+    public enum BidiMode {
+        LOCK_FREE,
+        SYNCHRONIZED
+    }
+
+    private BidiMode bidiMode = BidiMode.LOCK_FREE;
+
+    // Inbound messages requested ahead of processing in lock-free bidirectional streams
+    private int bidiInboundWindow = 64;
+
+    // Size of the top-names list and the random sample returned by sayHellosClientStream
+    private int clientStreamTopK = 10;
+    private int clientStreamSampleSize = 10;
+
+    // sayHello 的回應快取，grpc.service.reply-cache.policy=none 時為 null
+    private ReplyCache replyCache;
+
+    // server 停止時通知串流在目前的批次後結束，直接 new 的 service (benchmark) 沒有
+    private StreamDrainer streamDrainer;
+
+    @Value("${grpc.service.bidi.mode:lock-free}")
+    public void setBidiMode(String mode) {
+        this.bidiMode = BidiMode.valueOf(mode.trim().toUpperCase().replace('-', '_'));
+    }
+
+    @Value("${grpc.service.bidi.inbound-window:64}")
+    public void setBidiInboundWindow(int window) {
+        this.bidiInboundWindow = Math.max(1, window);
+    }
+
+    @Value("${grpc.service.client-stream.top-k:10}")
+    public void setClientStreamTopK(int topK) {
+        this.clientStreamTopK = Math.max(0, topK);
+    }
+
+    @Value("${grpc.service.client-stream.sample-size:10}")
+    public void setClientStreamSampleSize(int sampleSize) {
+        this.clientStreamSampleSize = Math.max(0, sampleSize);
+    }
+
+    @Autowired(required = false)
+    public void setReplyCache(ReplyCache replyCache) {
+        this.replyCache = replyCache;
+    }
+
+    @Autowired(required = false)
+    public void setStreamDrainer(StreamDrainer streamDrainer) {
+        this.streamDrainer = streamDrainer;
+    }
+
     @Override
     public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+        if (isCallerGone(responseObserver)) {
+            return;
+        }
+        // 只有被抽樣的呼叫記錄逐筆日誌
+        boolean logCall = LogSampler.isCallSampled() && logger.isInfoEnabled();
         try {
-            logger.info("Received sayHello request, name: {}", request.getName());
+            if (logCall) {
+                logger.info("Received sayHello request, name: {}", request.getName());
+            }
 
-            // Build response
-            HelloReply reply = HelloReply.newBuilder()
-                    .setMessage("Hello, " + request.getName() + "! - Backend Service - A")
-                    .build();
+            // Build response, or reuse the cached one for a request with the same bytes
+            HelloReply reply = replyCache != null
+                    ? replyCache.get(request.toByteString(), () -> buildHelloReply(request)).reply()
+                    : buildHelloReply(request);
 
-            logger.info("Sending response: {}", reply.getMessage());
+            if (logCall) {
+                logger.info("Sending response: {}", reply.getMessage());
+            }
 
             // Send response
             responseObserver.onNext(reply);
             responseObserver.onCompleted();
-            logger.info("Request completed: sayHello");
+            if (logCall) {
+                logger.info("Request completed: sayHello");
+            }
 
         } catch (Exception e) {
             logger.error("Error occurred while processing request", e);
@@ -37,55 +125,301 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
         }
     }
 
+    /**
+     * sayHello with a lazily parsed request and a pre-encoded reply: with the reply cache enabled,
+     * a hit is keyed on the raw request bytes and sends the cached encoded reply, so neither
+     * message is decoded or encoded.
+     */
+    private void sayHelloPreEncoded(LazyMessage<HelloRequest> request,
+                                    StreamObserver<EncodedMessage<HelloReply>> responseObserver) {
+        if (isCallerGone(responseObserver)) {
+            return;
+        }
+        boolean logCall = LogSampler.isCallSampled() && logger.isInfoEnabled();
+        try {
+            if (logCall) {
+                logger.info("Received sayHello request, name: {}", request.get().getName());
+            }
+
+            EncodedMessage<HelloReply> reply = replyCache != null
+                    ? EncodedMessage.ofBytes(replyCache.get(request.bytes(), () -> buildHelloReply(request.get())).encoded())
+                    : EncodedMessage.of(buildHelloReply(request.get()));
+
+            if (logCall) {
+                logger.info("Sending response: {}", reply);
+            }
+            responseObserver.onNext(reply);
+            responseObserver.onCompleted();
+            if (logCall) {
+                logger.info("Request completed: sayHello");
+            }
+        } catch (Exception e) {
+            logger.error("Error occurred while processing request", e);
+            responseObserver.onError(e);
+        }
+    }
+
+    /**
+     * Service definition with sayHello bound to {@link PreEncodedMarshallers}; the wire format is
+     * unchanged and the other methods keep the generated protobuf marshallers.
+     */
+    public ServerServiceDefinition bindPreEncodedService() {
+        return PreEncodedMarshallers.override(bindService(), ServerMethodDefinition.create(
+                PreEncodedMarshallers.preEncoded(GreetingServiceGrpc.getSayHelloMethod()),
+                ServerCalls.asyncUnaryCall(this::sayHelloPreEncoded)));
+    }
+
+    private static HelloReply buildHelloReply(HelloRequest request) {
+        return HelloReply.newBuilder()
+                .setMessage("Hello, " + request.getName() + "! - Backend Service - A")
+                .build();
+    }
+
+    /**
+     * @return the batch reply, or null if the call was cancelled or its deadline passed midway
+     */
+    private static HelloBatchReply buildBatchReply(HelloBatchRequest batch, StreamObserver<?> responseObserver) {
+        HelloBatchReply.Builder builder = HelloBatchReply.newBuilder();
+        for (int i = 0; i < batch.getRequestsCount(); i++) {
+            if (i > 0 && i % CANCELLATION_CHECK_INTERVAL == 0 && isCallerGone(responseObserver)) {
+                return null;
+            }
+            builder.addReplies(buildHelloReply(batch.getRequests(i)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 客戶端已取消或 deadline 已過時呼叫已經結束，回應不會送達，handler 應停止處理
+     */
+    private static boolean isCallerGone(StreamObserver<?> responseObserver) {
+        return responseObserver instanceof ServerCallStreamObserver<?> call && call.isCancelled();
+    }
+
+    private DrainableStream trackStream(ServerCallStreamObserver<?> serverObserver) {
+        return streamDrainer != null ? streamDrainer.track(serverObserver) : DrainableStream.untracked(serverObserver);
+    }
+
+    /**
+     * 在呼叫的 onCancel handler 內判斷取消原因
+     */
+    private static String cancelReason() {
+        Deadline deadline = Context.current().getDeadline();
+        return deadline != null && deadline.isExpired() ? "deadline exceeded" : "cancelled by client";
+    }
+
     @Override
-    public void sayHellosServerStream(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+    public void sayHelloBatch(HelloBatchRequest request, StreamObserver<HelloBatchReply> responseObserver) {
+        boolean logCall = LogSampler.isCallSampled() && logger.isInfoEnabled();
         try {
-            logger.info("Received sayHellosServerStream request, name: {}", request.getName());
+            if (logCall) {
+                logger.info("Received sayHelloBatch request, size: {}", request.getRequestsCount());
+            }
+            HelloBatchReply reply = buildBatchReply(request, responseObserver);
+            if (reply == null) {
+                if (logCall) {
+                    logger.info("sayHelloBatch stopped, caller is gone");
+                }
+                return;
+            }
+            responseObserver.onNext(reply);
+            responseObserver.onCompleted();
+            if (logCall) {
+                logger.info("Request completed: sayHelloBatch");
+            }
+        } catch (Exception e) {
+            logger.error("Error occurred while processing batch request", e);
+            responseObserver.onError(e);
+        }
+    }
+
+    /**
+     * Replies to each batch with one batch reply. Uses the same manual flow control as the
+     * lock-free bidirectional handler, so a client that stops reading stops receiving batches.
+     */
+    @Override
+    public StreamObserver<HelloBatchRequest> sayHellosBatchStream(StreamObserver<HelloBatchReply> responseObserver) {
+        boolean logCall = LogSampler.isCallSampled() && logger.isInfoEnabled();
+        if (logCall) {
+            logger.info("Starting sayHellosBatchStream call");
+        }
 
-            // Send multiple responses
-            for (int i = 0; i < 5; i++) {
+        ServerCallStreamObserver<HelloBatchReply> serverObserver =
+                (ServerCallStreamObserver<HelloBatchReply>) responseObserver;
+        AtomicInteger deferredRequests = new AtomicInteger();
+        DrainableStream stream = trackStream(serverObserver);
+
+        serverObserver.disableAutoRequest();
+        serverObserver.setOnReadyHandler(() -> {
+            int deferred = deferredRequests.getAndSet(0);
+            if (deferred > 0 && stream.enter()) {
                 try {
-                    HelloReply reply = HelloReply.newBuilder()
-                            .setMessage("Stream response #" + i + " for " + request.getName())
-                            .build();
+                    serverObserver.request(deferred);
+                } finally {
+                    stream.exit();
+                }
+            }
+        });
+        serverObserver.setOnCancelHandler(() -> {
+            stream.close();
+            if (logCall) {
+                logger.info("Batch stream {}", cancelReason());
+            }
+        });
+        serverObserver.request(bidiInboundWindow);
+        // 設定完成才開放 drain，期間收到的 drain 在此結束串流
+        stream.exit();
 
-                    logger.info("Sending stream response #{}: {}", i, reply.getMessage());
-                    responseObserver.onNext(reply);
+        return new StreamObserver<HelloBatchRequest>() {
+            private long batchCount = 0;
+            private long messageCount = 0;
 
-                    Thread.sleep(200); // Simulate processing delay
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    logger.warn("Interrupted during stream processing", e);
-                    break;
+            @Override
+            public void onNext(HelloBatchRequest batch) {
+                if (!stream.enter()) {
+                    return;
+                }
+                // drain 在處理期間開始時，exit() 於這個批次的回應送出後結束串流
+                try {
+                    HelloBatchReply reply = buildBatchReply(batch, serverObserver);
+                    if (reply == null) {
+                        return;
+                    }
+                    serverObserver.onNext(reply);
+                    batchCount++;
+                    messageCount += batch.getRequestsCount();
+
+                    if (serverObserver.isReady()) {
+                        serverObserver.request(1);
+                    } else {
+                        deferredRequests.incrementAndGet();
+                    }
                 } catch (Exception e) {
-                    logger.warn("Error occurred while sending stream response", e);
-                    break;
+                    logger.warn("Error occurred while processing batch: {}", e.getMessage());
+                    if (stream.close()) {
+                        serverObserver.onError(Status.INTERNAL
+                                .withDescription("Error processing batch: " + e.getMessage())
+                                .asException());
+                    }
+                } finally {
+                    stream.exit();
                 }
             }
 
-            // Check if thread was interrupted
-            if (!Thread.currentThread().isInterrupted()) {
-                responseObserver.onCompleted();
-                logger.info("Request completed: sayHellosServerStream");
+            @Override
+            public void onError(Throwable t) {
+                if (!stream.close()) {
+                    return;
+                }
+                if (t instanceof StatusRuntimeException &&
+                        ((StatusRuntimeException) t).getStatus().getCode() == Status.Code.CANCELLED) {
+                    if (logCall) {
+                        logger.info("Client cancelled batch stream, processed {} batches", batchCount);
+                    }
+                } else {
+                    logger.error("Batch stream error", t);
+                }
             }
 
-        } catch (Exception e) {
-            logger.error("Error occurred while processing request", e);
-            try {
-                responseObserver.onError(e);
-            } catch (Exception ex) {
-                logger.warn("Exception occurred while sending error to client", ex);
+            @Override
+            public void onCompleted() {
+                if (!stream.close()) {
+                    return;
+                }
+                if (logCall) {
+                    logger.info("Batch stream completed, processed {} batches, {} messages", batchCount, messageCount);
+                }
+                try {
+                    serverObserver.onCompleted();
+                } catch (Exception e) {
+                    logger.warn("Error occurred while completing request", e);
+                }
             }
+        };
+    }
+
+    @Override
+    public void sayHellosServerStream(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+        boolean logCall = LogSampler.isCallSampled() && logger.isInfoEnabled();
+        int replyCount = request.getReplyCount() > 0 ? request.getReplyCount() : DEFAULT_STREAM_REPLIES;
+        if (logCall) {
+            logger.info("Received sayHellosServerStream request, name: {}, replies: {}", request.getName(), replyCount);
         }
+
+        ServerCallStreamObserver<HelloReply> serverObserver = (ServerCallStreamObserver<HelloReply>) responseObserver;
+        // The send loop below checks isCancelled(), so a cancelled call or an expired deadline stops
+        // it before the next reply is built
+        DrainableStream stream = trackStream(serverObserver);
+        serverObserver.setOnCancelHandler(() -> {
+            stream.close();
+            if (logCall) {
+                logger.info("sayHellosServerStream {}", cancelReason());
+            }
+        });
+
+        // Send replies only while the transport can accept them; the handler runs again once the
+        // client drains its flow-control window, so no thread is parked and nothing is buffered
+        serverObserver.setOnReadyHandler(new Runnable() {
+            private int sent = 0;
+
+            @Override
+            public void run() {
+                if (!stream.enter()) {
+                    return;
+                }
+                try {
+                    // drain 開始後送完目前的回應即停止，由 exit() 以 UNAVAILABLE 結束
+                    while (sent < replyCount && serverObserver.isReady() && !serverObserver.isCancelled()
+                            && !stream.isDrainRequested()) {
+                        HelloReply reply = HelloReply.newBuilder()
+                                .setMessage("Stream response #" + sent + " for " + request.getName())
+                                .build();
+                        if (logCall && logger.isDebugEnabled()) {
+                            logger.debug("Sending stream response #{}: {}", sent, reply.getMessage());
+                        }
+                        serverObserver.onNext(reply);
+                        sent++;
+                    }
+
+                    if (serverObserver.isCancelled()) {
+                        stream.close();
+                    } else if (sent == replyCount && stream.close()) {
+                        serverObserver.onCompleted();
+                        if (logCall) {
+                            logger.info("Request completed: sayHellosServerStream, sent {} responses", sent);
+                        }
+                    }
+                } catch (Exception e) {
+                    if (!stream.close()) {
+                        return;
+                    }
+                    logger.error("Error occurred while sending stream response", e);
+                    try {
+                        serverObserver.onError(Status.INTERNAL
+                                .withDescription("Error sending stream response: " + e.getMessage())
+                                .asException());
+                    } catch (Exception ex) {
+                        logger.warn("Exception occurred while sending error to client", ex);
+                    }
+                } finally {
+                    stream.exit();
+                }
+            }
+        });
+        stream.exit();
     }
 
     @Override
     public StreamObserver<HelloRequest> sayHellosClientStream(StreamObserver<HelloReply> responseObserver) {
-        logger.info("Starting sayHellosClientStream call");
+        boolean logCall = LogSampler.isCallSampled() && logger.isInfoEnabled();
+        if (logCall) {
+            logger.info("Starting sayHellosClientStream call");
+        }
 
         return new StreamObserver<HelloRequest>() {
-            private final StringBuilder messageCollector = new StringBuilder();
-            private int messageCount = 0;
+            // Constant-memory summary of the stream, however many messages arrive
+            private final ClientStreamAggregator aggregator =
+                    new ClientStreamAggregator(clientStreamTopK, clientStreamSampleSize);
             private final Object lock = new Object();
             private boolean completed = false;
             private boolean errored = false;
@@ -94,20 +428,18 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
             public void onNext(HelloRequest request) {
                 synchronized (lock) {
                     if (completed || errored) {
-                        logger.info("Ignoring message, stream completed or errored");
+                        if (logCall) {
+                            logger.info("Ignoring message, stream completed or errored");
+                        }
                         return;
                     }
 
                     try {
-                        logger.info("Received client stream message #{}: {}", messageCount, request.getName());
-                        // Limit collected message length to avoid unlimited memory growth
-                        if (messageCollector.length() < 8192) { // Limit to 8KB
-                            messageCollector.append("[").append(messageCount++).append(": ").append(request.getName()).append("] ");
-                        } else {
-                            // Only increment count but don't add content
-                            messageCount++;
-                            logger.warn("Message collector reached size limit, only recording count");
+                        if (logCall && logger.isDebugEnabled()) {
+                            logger.debug("Received client stream message #{}: {}",
+                                    aggregator.getMessageCount(), request.getName());
                         }
+                        aggregator.add(request);
                     } catch (Exception e) {
                         logger.error("Error processing message", e);
                         errored = true;
@@ -129,38 +461,15 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
 
                     if (t instanceof StatusRuntimeException &&
                             ((StatusRuntimeException)t).getStatus().getCode() == Status.Code.CANCELLED) {
-                        logger.info("Client cancelled stream, processed {} messages", messageCount);
+                        if (logCall) {
+                            logger.info("Client cancelled stream, processed {} messages", aggregator.getMessageCount());
+                        }
                     } else {
                         logger.error("Client stream error", t);
                     }
 
-                    // If some messages were processed, optionally send partial results
-                    if (messageCount > 0) {
-                        try {
-                            logger.info("Client cancelled but partial messages processed, returning partial results");
-                            HelloReply reply = HelloReply.newBuilder()
-                                    .setMessage("Processed " + messageCount + " messages (client cancelled): " +
-                                            messageCollector.toString())
-                                    .build();
-                            responseObserver.onNext(reply);
-                            responseObserver.onCompleted();
-                        } catch (Exception e) {
-                            logger.warn("Error trying to send response after client cancellation", e);
-                            // Ensure stream is closed
-                            try {
-                                responseObserver.onCompleted();
-                            } catch (Exception ex) {
-                                // Ignore final completion exception
-                            }
-                        }
-                    } else {
-                        // Ensure stream is closed on error
-                        try {
-                            responseObserver.onCompleted();
-                        } catch (Exception ex) {
-                            // Ignore final completion exception
-                        }
-                    }
+                    // An error from the client means the call is already cancelled (by the client or its
+                    // deadline), so a partial summary would never be delivered; drop it without building it
                 }
             }
 
@@ -168,27 +477,35 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
             public void onCompleted() {
                 synchronized (lock) {
                     if (completed || errored) {
-                        logger.info("Ignoring onCompleted, stream already completed or errored");
+                        if (logCall) {
+                            logger.info("Ignoring onCompleted, stream already completed or errored");
+                        }
                         return;
                     }
 
                     completed = true;
-                    logger.info("Client completed stream transmission, received {} messages total", messageCount);
+                    if (logCall) {
+                        logger.info("Client completed stream transmission, received {} messages total",
+                                aggregator.getMessageCount());
+                    }
 
                     try {
-                        // Check collector size to avoid returning oversized response
-                        String collectedMessages = messageCollector.length() > 1024 ?
-                                messageCollector.substring(0, 1024) + "... [message too long, truncated]" :
-                                messageCollector.toString();
-
+                        StreamSummary summary = aggregator.toSummary();
                         HelloReply reply = HelloReply.newBuilder()
-                                .setMessage("Received " + messageCount + " messages: " + collectedMessages)
+                                .setMessage("Received " + summary.getMessageCount() + " messages, ~"
+                                        + summary.getDistinctNamesEstimate() + " distinct names, sample: "
+                                        + summary.getSampleNamesList())
+                                .setSummary(summary)
                                 .build();
 
-                        logger.info("Sending summary response: {}", reply.getMessage());
+                        if (logCall) {
+                            logger.info("Sending summary response: {}", reply.getMessage());
+                        }
                         responseObserver.onNext(reply);
                         responseObserver.onCompleted();
-                        logger.info("Request completed: sayHellosClientStream");
+                        if (logCall) {
+                            logger.info("Request completed: sayHellosClientStream");
+                        }
                     } catch (Exception e) {
                         logger.error("Error sending response", e);
                         try {
@@ -206,8 +523,129 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
 
     @Override
     public StreamObserver<HelloRequest> sayHellosBidirectional(StreamObserver<HelloReply> responseObserver) {
-        logger.info("Starting sayHellosBidirectional call");
+        boolean logCall = LogSampler.isCallSampled() && logger.isInfoEnabled();
+        if (logCall) {
+            logger.info("Starting sayHellosBidirectional call, mode: {}", bidiMode);
+        }
+
+        if (bidiMode == BidiMode.SYNCHRONIZED) {
+            return synchronizedBidirectional(responseObserver, logCall);
+        }
+        return lockFreeBidirectional((ServerCallStreamObserver<HelloReply>) responseObserver, logCall);
+    }
+
+    /**
+     * Lock-free bidirectional handler.
+     *
+     * <p>gRPC delivers onNext/onError/onCompleted and the onReady/onCancel handlers of one call
+     * serially, so the per-call state needs no lock. Inbound messages are requested manually:
+     * up to {@code bidiInboundWindow} are in flight, and a new one is requested for every reply
+     * the transport accepts. When the client stops reading replies, requests are deferred until
+     * the onReady handler fires, so a slow reader pushes back on its own sender.
+     */
+    private StreamObserver<HelloRequest> lockFreeBidirectional(ServerCallStreamObserver<HelloReply> serverObserver,
+                                                               boolean logCall) {
+        AtomicInteger deferredRequests = new AtomicInteger();
+        DrainableStream stream = trackStream(serverObserver);
+
+        serverObserver.disableAutoRequest();
+        serverObserver.setOnReadyHandler(() -> {
+            int deferred = deferredRequests.getAndSet(0);
+            if (deferred > 0 && stream.enter()) {
+                try {
+                    serverObserver.request(deferred);
+                } finally {
+                    stream.exit();
+                }
+            }
+        });
+        serverObserver.setOnCancelHandler(() -> {
+            stream.close();
+            if (logCall) {
+                logger.info("Bidirectional stream {}", cancelReason());
+            }
+        });
+        serverObserver.request(bidiInboundWindow);
+        // 設定完成才開放 drain，期間收到的 drain 在此結束串流
+        stream.exit();
 
+        return new StreamObserver<HelloRequest>() {
+            // Only touched from the serialized call callbacks
+            private long messageCount = 0;
+
+            @Override
+            public void onNext(HelloRequest request) {
+                if (!stream.enter()) {
+                    return;
+                }
+                try {
+                    HelloReply reply = HelloReply.newBuilder()
+                            .setMessage("Bidirectional stream response #" + messageCount + " for " + request.getName())
+                            .build();
+                    if (logCall && logger.isDebugEnabled()) {
+                        logger.debug("Sending bidirectional stream response #{}: {}", messageCount, reply.getMessage());
+                    }
+                    serverObserver.onNext(reply);
+                    messageCount++;
+
+                    if (serverObserver.isReady()) {
+                        serverObserver.request(1);
+                    } else {
+                        deferredRequests.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    logger.warn("Error occurred while processing message: {}", e.getMessage());
+                    if (stream.close()) {
+                        serverObserver.onError(Status.INTERNAL
+                                .withDescription("Error processing message: " + e.getMessage())
+                                .asException());
+                    }
+                } finally {
+                    stream.exit();
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (!stream.close()) {
+                    return;
+                }
+                if (t instanceof StatusRuntimeException &&
+                        ((StatusRuntimeException) t).getStatus().getCode() == Status.Code.CANCELLED) {
+                    if (logCall) {
+                        logger.info("Client cancelled bidirectional stream, processed {} messages", messageCount);
+                    }
+                } else {
+                    logger.error("Bidirectional stream error", t);
+                }
+            }
+
+            @Override
+            public void onCompleted() {
+                if (!stream.close()) {
+                    return;
+                }
+                if (logCall) {
+                    logger.info("Bidirectional stream completed, processed {} messages", messageCount);
+                }
+                try {
+                    serverObserver.onCompleted();
+                } catch (Exception e) {
+                    logger.warn("Error occurred while completing request", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Original handler that serializes every message on a lock, kept for comparison
+     * (grpc.service.bidi.mode=synchronized)
+     */
+    private StreamObserver<HelloRequest> synchronizedBidirectional(StreamObserver<HelloReply> responseObserver,
+                                                                   boolean logCall) {
+        DrainableStream stream = trackStream((ServerCallStreamObserver<HelloReply>) responseObserver);
+        // 這個 handler 不設定 observer，立即開放 drain
+        stream.exit();
         return new StreamObserver<HelloRequest>() {
             private int messageCount = 0;
             private final Object lock = new Object();
@@ -217,24 +655,33 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
             @Override
             public void onNext(HelloRequest request) {
                 synchronized (lock) {
-                    if (completed || errored) {
-                        logger.info("Stream completed or errored, ignoring new message");
+                    if (completed || errored || !stream.enter()) {
+                        if (logCall) {
+                            logger.info("Stream completed or errored, ignoring new message");
+                        }
                         return;
                     }
 
-                    logger.info("Received bidirectional stream request #{}: {}", messageCount, request.getName());
+                    if (logCall) {
+                        logger.info("Received bidirectional stream request #{}: {}", messageCount, request.getName());
+                    }
 
                     try {
                         HelloReply reply = HelloReply.newBuilder()
                                 .setMessage("Bidirectional stream response #" + messageCount + " for " + request.getName())
                                 .build();
 
-                        logger.info("Sending bidirectional stream response #{}: {}", messageCount, reply.getMessage());
+                        if (logCall) {
+                            logger.info("Sending bidirectional stream response #{}: {}", messageCount, reply.getMessage());
+                        }
                         responseObserver.onNext(reply);
                         messageCount++;
                     } catch (Exception e) {
                         logger.warn("Error occurred while processing message: {}", e.getMessage());
                         errored = true;
+                        stream.close();
+                    } finally {
+                        stream.exit();
                     }
                 }
             }
@@ -247,10 +694,13 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
                     }
 
                     errored = true;
+                    stream.close();
 
                     if (t instanceof StatusRuntimeException &&
                             ((StatusRuntimeException)t).getStatus().getCode() == Status.Code.CANCELLED) {
-                        logger.info("Client cancelled bidirectional stream, processed {} messages", messageCount);
+                        if (logCall) {
+                            logger.info("Client cancelled bidirectional stream, processed {} messages", messageCount);
+                        }
                     } else {
                         logger.error("Bidirectional stream error", t);
                     }
@@ -265,10 +715,17 @@ public class GreetingService extends GreetingServiceGrpc.GreetingServiceImplBase
                     }
 
                     completed = true;
-                    logger.info("Bidirectional stream completed, processed {} messages", messageCount);
+                    if (!stream.close()) {
+                        return;
+                    }
+                    if (logCall) {
+                        logger.info("Bidirectional stream completed, processed {} messages", messageCount);
+                    }
                     try {
                         responseObserver.onCompleted();
-                        logger.info("Request completed: sayHellosBidirectional");
+                        if (logCall) {
+                            logger.info("Request completed: sayHellosBidirectional");
+                        }
                     } catch (Exception e) {
                         logger.warn("Error occurred while completing request", e);
                     }
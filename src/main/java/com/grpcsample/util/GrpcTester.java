@@ -1,15 +1,34 @@
 package com.grpcsample.util;
 
+import com.grpcsample.client.AutoBatchingStub;
 import com.grpcsample.client.GrpcClient;
+import com.grpcsample.client.GrpcClientPool;
+import com.grpcsample.compression.CompressionClientInterceptor;
+import com.grpcsample.grpc.HelloReply;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 命令行測試工具，用於測試 gRPC 服務
+ *
+ * <p>加上 --rpc/--rps/--concurrency/--duration/--payload-size 任一參數即進入負載模式，
+ * 例如: --no-tls --rpc bidi --rps 2000 --concurrency 128 --duration 60
+ *
+ * <p>--targets host:port,... 與 --channels N 以 {@link GrpcClientPool} 分散連線，
+ * 搭配 --balance round-robin|least-outstanding 與 --resolver static|dns。
+ *
+ * <p>--timeout-ms N 設定每個呼叫的 deadline (預設 10000，0 表示不設 deadline)。
+ * --compression gzip 壓縮請求，搭配 --compression-min-bytes N 設定壓縮門檻。
+ *
+ * <p>--target unix:///path/to/socket 經由 Unix domain socket 連線 (server 未啟用 grpc.server.uds.tls 時加上 --no-tls)。
  */
 public class GrpcTester {
     private static final Logger logger = LoggerFactory.getLogger(GrpcTester.class);
@@ -18,6 +37,26 @@ public class GrpcTester {
         String host = "localhost";
         int port = 50051;
         boolean useTls = true; // 默認使用 TLS
+        String target = null;
+        Duration callTimeout = GrpcClient.DEFAULT_CALL_TIMEOUT;
+        String compression = null;
+        int compressionMinBytes = CompressionClientInterceptor.DEFAULT_MIN_MESSAGE_BYTES;
+
+        // 負載模式參數，任一參數出現即進入負載模式
+        boolean loadMode = false;
+        LoadGenerator.RpcType rpc = LoadGenerator.RpcType.UNARY;
+        int rps = 0;
+        int concurrency = 64;
+        int durationSeconds = 30;
+        int payloadSize = 16;
+        int messagesPerStream = 5;
+        String output = "build/load/latency";
+
+        // Channel pool 參數，--targets 或 --channels 大於 1 時使用 GrpcClientPool
+        List<String> targets = null;
+        int channels = 1;
+        GrpcClientPool.Selection balance = GrpcClientPool.Selection.ROUND_ROBIN;
+        GrpcClientPool.Resolver resolver = GrpcClientPool.Resolver.STATIC;
 
         // 解析命令行參數
         if (args.length > 0) {
@@ -26,32 +65,88 @@ public class GrpcTester {
                     host = args[++i];
                 } else if ("--port".equals(args[i]) && i + 1 < args.length) {
                     port = Integer.parseInt(args[++i]);
+                } else if ("--target".equals(args[i]) && i + 1 < args.length) {
+                    target = args[++i];
                 } else if ("--no-tls".equals(args[i])) {
                     useTls = false;
+                } else if ("--rpc".equals(args[i]) && i + 1 < args.length) {
+                    rpc = LoadGenerator.RpcType.parse(args[++i]);
+                    loadMode = true;
+                } else if ("--rps".equals(args[i]) && i + 1 < args.length) {
+                    rps = Integer.parseInt(args[++i]);
+                    loadMode = true;
+                } else if ("--concurrency".equals(args[i]) && i + 1 < args.length) {
+                    concurrency = Integer.parseInt(args[++i]);
+                    loadMode = true;
+                } else if ("--duration".equals(args[i]) && i + 1 < args.length) {
+                    durationSeconds = Integer.parseInt(args[++i]);
+                    loadMode = true;
+                } else if ("--payload-size".equals(args[i]) && i + 1 < args.length) {
+                    payloadSize = Integer.parseInt(args[++i]);
+                    loadMode = true;
+                } else if ("--messages-per-stream".equals(args[i]) && i + 1 < args.length) {
+                    messagesPerStream = Integer.parseInt(args[++i]);
+                } else if ("--output".equals(args[i]) && i + 1 < args.length) {
+                    output = args[++i];
+                } else if ("--targets".equals(args[i]) && i + 1 < args.length) {
+                    targets = Arrays.asList(args[++i].split(","));
+                } else if ("--channels".equals(args[i]) && i + 1 < args.length) {
+                    channels = Integer.parseInt(args[++i]);
+                } else if ("--balance".equals(args[i]) && i + 1 < args.length) {
+                    balance = GrpcClientPool.Selection.parse(args[++i]);
+                } else if ("--resolver".equals(args[i]) && i + 1 < args.length) {
+                    resolver = GrpcClientPool.Resolver.parse(args[++i]);
+                } else if ("--timeout-ms".equals(args[i]) && i + 1 < args.length) {
+                    long timeoutMs = Long.parseLong(args[++i]);
+                    callTimeout = timeoutMs > 0 ? Duration.ofMillis(timeoutMs) : null;
+                } else if ("--compression".equals(args[i]) && i + 1 < args.length) {
+                    compression = args[++i];
+                } else if ("--compression-min-bytes".equals(args[i]) && i + 1 < args.length) {
+                    compressionMinBytes = Integer.parseInt(args[++i]);
                 }
             }
         }
 
-        logger.info("Connecting to gRPC server at {}:{} with TLS {}",
-                host, port, useTls ? "enabled" : "disabled");
+        logger.info("Connecting to gRPC server at {} with TLS {}",
+                target != null ? target : host + ":" + port, useTls ? "enabled" : "disabled");
 
         GrpcClient client = null;
         try {
             // 創建客戶端
+            File certFile = null;
             if (useTls) {
-                File certFile = new File("src/main/resources/keystore/grpc-server-cert.pem");
+                certFile = new File("src/main/resources/keystore/grpc-server-cert.pem");
                 if (!certFile.exists()) {
                     logger.error("Certificate file not found: {}", certFile.getAbsolutePath());
                     logger.info("Please run KeytoolCertificateGenerator first");
                     return;
                 }
+            }
+            if (target != null) {
+                client = GrpcClient.forTarget(target, certFile);
+            } else if (targets != null || channels > 1) {
+                if (targets == null) {
+                    targets = List.of(host + ":" + port);
+                }
+                client = GrpcClient.pooled(new GrpcClientPool.Options(targets, channels, balance, resolver,
+                        Duration.ofSeconds(5)), certFile);
+            } else if (certFile != null) {
                 client = new GrpcClient(host, port, certFile);
             } else {
                 client = new GrpcClient(host, port);
             }
-
-            // 測試所有 RPC 方法
-            runAllTests(client);
+            client.setCallTimeout(callTimeout);
+            client.setCompression(compression, compressionMinBytes);
+
+            if (loadMode) {
+                // 負載測試，輸出 HdrHistogram 延遲分佈
+                LoadGenerator.Options options = new LoadGenerator.Options(rpc, rps, concurrency,
+                        Duration.ofSeconds(durationSeconds), payloadSize, messagesPerStream, output);
+                new LoadGenerator(client.getChannel(), options).run();
+            } else {
+                // 測試所有 RPC 方法
+                runAllTests(client);
+            }
 
         } catch (Exception e) {
             logger.error("Error during gRPC testing", e);
@@ -79,6 +174,9 @@ public class GrpcTester {
 
         // 測試 Bidirectional Streaming RPC
         testBidirectionalStreamingRpc(client);
+
+        // 測試自動批次 (sayHelloBatch)
+        testAutoBatchingRpc(client);
     }
 
     private static void testUnaryRpc(GrpcClient client) {
@@ -95,7 +193,7 @@ public class GrpcTester {
     private static void testServerStreamingRpc(GrpcClient client) {
         logger.info("\n==== Testing Server Streaming RPC ====");
         try {
-            client.testServerStream("Test User - Server Stream");
+            client.testServerStream("Test User - Server Stream").get(30, TimeUnit.SECONDS);
             logger.info("Server Streaming RPC test: SUCCESS");
         } catch (Exception e) {
             logger.error("Server Streaming RPC test: FAILED", e);
@@ -112,7 +210,7 @@ public class GrpcTester {
                     "Client Stream Message 4",
                     "Client Stream Message 5"
             );
-            String response = client.testClientStream(messages);
+            String response = client.testClientStream(messages).get(30, TimeUnit.SECONDS);
             logger.info("Client Streaming RPC Response: {}", response);
             logger.info("Client Streaming RPC test: SUCCESS");
         } catch (Exception e) {
@@ -130,10 +228,26 @@ public class GrpcTester {
                     "Bidirectional Message 4",
                     "Bidirectional Message 5"
             );
-            client.testBidirectionalStream(messages);
+            client.testBidirectionalStream(messages).get(30, TimeUnit.SECONDS);
             logger.info("Bidirectional Streaming RPC test: SUCCESS");
         } catch (Exception e) {
             logger.error("Bidirectional Streaming RPC test: FAILED", e);
         }
     }
-}
\ No newline at end of file
+
+    private static void testAutoBatchingRpc(GrpcClient client) {
+        logger.info("\n==== Testing Auto-Batching RPC ====");
+        try (AutoBatchingStub stub = client.newAutoBatchingStub(8, Duration.ofMillis(5))) {
+            List<CompletableFuture<HelloReply>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(stub.sayHello("Batch User " + i));
+            }
+            for (CompletableFuture<HelloReply> future : futures) {
+                logger.info("Auto-Batching RPC Response: {}", future.get(10, TimeUnit.SECONDS).getMessage());
+            }
+            logger.info("Auto-Batching RPC test: SUCCESS");
+        } catch (Exception e) {
+            logger.error("Auto-Batching RPC test: FAILED", e);
+        }
+    }
+}
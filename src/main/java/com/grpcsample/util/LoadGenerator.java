@@ -0,0 +1,243 @@
+package com.grpcsample.util;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.Channel;
+import io.grpc.stub.StreamObserver;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 負載產生器，支援 closed-loop (固定併發) 與 open-loop (固定 RPS) 兩種模式
+ *
+ * <p>Open-loop 模式下，延遲是從「預定發送時間」開始計算，而不是實際發送時間，
+ * 因此當 server 變慢、請求排隊時不會低估延遲 (coordinated omission 修正)。
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    // 延遲以微秒記錄，最長 1 分鐘
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    public enum RpcType {
+        UNARY, SERVER, CLIENT, BIDI;
+
+        public static RpcType parse(String value) {
+            return RpcType.valueOf(value.trim().toUpperCase());
+        }
+    }
+
+    /**
+     * @param rps               目標每秒請求數，0 表示 closed-loop
+     * @param concurrency       同時進行中的最大請求數
+     * @param messagesPerStream 串流每次呼叫送出 (client/bidi) 或回應 (server) 的訊息數
+     * @param outputPrefix      輸出檔名前綴，會產生 .txt 與 .hlog
+     */
+    public record Options(RpcType rpc, int rps, int concurrency, Duration duration,
+                          int payloadSize, int messagesPerStream, String outputPrefix) {
+    }
+
+    private final GreetingServiceGrpc.GreetingServiceStub asyncStub;
+    private final Options options;
+    private final HelloRequest request;
+    private final Semaphore inFlight;
+
+    // 從預定發送時間計算的延遲 (修正 coordinated omission)
+    private final Recorder responseTimeRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    // 從實際發送時間計算的延遲
+    private final Recorder serviceTimeRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public LoadGenerator(Channel channel, Options options) {
+        this.asyncStub = GreetingServiceGrpc.newStub(channel);
+        this.options = options;
+        this.request = HelloRequest.newBuilder()
+                .setName("x".repeat(Math.max(1, options.payloadSize())))
+                .setReplyCount(options.messagesPerStream())
+                .build();
+        this.inFlight = new Semaphore(options.concurrency());
+    }
+
+    public void run() throws InterruptedException, FileNotFoundException {
+        logger.info("Starting load: rpc={}, rps={}, concurrency={}, duration={}, payloadSize={}",
+                options.rpc(), options.rps() > 0 ? options.rps() : "closed-loop",
+                options.concurrency(), options.duration(), options.payloadSize());
+
+        File hlogFile = new File(options.outputPrefix() + ".hlog");
+        File textFile = new File(options.outputPrefix() + ".txt");
+        if (hlogFile.getParentFile() != null) {
+            hlogFile.getParentFile().mkdirs();
+        }
+
+        Histogram totalResponseTime = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        Histogram totalServiceTime = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long elapsedNanos;
+
+        try (PrintStream hlogStream = new PrintStream(hlogFile)) {
+            HistogramLogWriter logWriter = new HistogramLogWriter(hlogStream);
+            long startMillis = System.currentTimeMillis();
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(startMillis);
+            logWriter.setBaseTime(startMillis);
+            logWriter.outputLegend();
+
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + options.duration().toNanos();
+            Histogram interval = null;
+
+            // 背景執行緒產生負載，主執行緒每秒輸出一次區間直方圖
+            Thread driver = new Thread(() -> drive(startNanos, endNanos), "load-driver");
+            driver.start();
+
+            // 負載結束後最多再等 30 秒讓進行中的請求完成
+            long drainDeadline = endNanos + TimeUnit.SECONDS.toNanos(30);
+            while ((driver.isAlive() || inFlight.availablePermits() < options.concurrency())
+                    && System.nanoTime() < drainDeadline) {
+                Thread.sleep(1000);
+                interval = responseTimeRecorder.getIntervalHistogram(interval);
+                totalResponseTime.add(interval);
+                logWriter.outputIntervalHistogram(interval);
+                totalServiceTime.add(serviceTimeRecorder.getIntervalHistogram());
+                logger.info("Interval: count={}, p50={}us, p99={}us, max={}us",
+                        interval.getTotalCount(), interval.getValueAtPercentile(50),
+                        interval.getValueAtPercentile(99), interval.getMaxValue());
+            }
+            // completed 包含 drain 期間完成的請求，吞吐量以實際經過的時間計算
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        try (PrintStream textStream = new PrintStream(textFile)) {
+            textStream.println("# Response time (from intended start, coordinated-omission corrected), ms");
+            totalResponseTime.outputPercentileDistribution(textStream, 1000.0);
+            textStream.println();
+            textStream.println("# Service time (from actual send), ms");
+            totalServiceTime.outputPercentileDistribution(textStream, 1000.0);
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        logger.info("Load finished: completed={}, failed={}, throughput={} ops/s",
+                completed.get(), failed.get(), String.format("%.1f", completed.get() / seconds));
+        logger.info("Response time p50={}us, p99={}us, p999={}us, max={}us",
+                totalResponseTime.getValueAtPercentile(50), totalResponseTime.getValueAtPercentile(99),
+                totalResponseTime.getValueAtPercentile(99.9), totalResponseTime.getMaxValue());
+        logger.info("Histograms written to {} and {}", textFile.getAbsolutePath(), hlogFile.getAbsolutePath());
+    }
+
+    private void drive(long startNanos, long endNanos) {
+        try {
+            if (options.rps() > 0) {
+                driveOpenLoop(startNanos, endNanos);
+            } else {
+                driveClosedLoop(endNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Load driver interrupted");
+        }
+    }
+
+    /**
+     * 依固定間隔排程請求，延遲從預定時間開始算起
+     */
+    private void driveOpenLoop(long startNanos, long endNanos) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rps();
+        for (long i = 0; ; i++) {
+            long intendedStart = startNanos + i * intervalNanos;
+            if (intendedStart >= endNanos) {
+                return;
+            }
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            // 若併發已滿則在此等待，等待時間會計入 response time
+            inFlight.acquire();
+            issue(intendedStart);
+        }
+    }
+
+    /**
+     * 每個完成的請求立即釋放名額給下一個請求
+     */
+    private void driveClosedLoop(long endNanos) throws InterruptedException {
+        while (System.nanoTime() < endNanos) {
+            inFlight.acquire();
+            issue(System.nanoTime());
+        }
+    }
+
+    private void issue(long intendedStart) {
+        long actualStart = System.nanoTime();
+        CompletionObserver observer = new CompletionObserver(intendedStart, actualStart);
+        try {
+            switch (options.rpc()) {
+                case UNARY -> asyncStub.sayHello(request, observer);
+                case SERVER -> asyncStub.sayHellosServerStream(request, observer);
+                case CLIENT -> sendAll(asyncStub.sayHellosClientStream(observer));
+                case BIDI -> sendAll(asyncStub.sayHellosBidirectional(observer));
+            }
+        } catch (RuntimeException e) {
+            observer.onError(e);
+        }
+    }
+
+    private void sendAll(StreamObserver<HelloRequest> requests) {
+        for (int i = 0; i < options.messagesPerStream(); i++) {
+            requests.onNext(request);
+        }
+        requests.onCompleted();
+    }
+
+    private final class CompletionObserver implements StreamObserver<HelloReply> {
+        private final long intendedStart;
+        private final long actualStart;
+
+        CompletionObserver(long intendedStart, long actualStart) {
+            this.intendedStart = intendedStart;
+            this.actualStart = actualStart;
+        }
+
+        @Override
+        public void onNext(HelloReply value) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            failed.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Load request failed: {}", t.getMessage());
+            }
+            record();
+        }
+
+        @Override
+        public void onCompleted() {
+            completed.incrementAndGet();
+            record();
+        }
+
+        private void record() {
+            long now = System.nanoTime();
+            responseTimeRecorder.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+                    TimeUnit.NANOSECONDS.toMicros(now - intendedStart)));
+            serviceTimeRecorder.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+                    TimeUnit.NANOSECONDS.toMicros(now - actualStart)));
+            inFlight.release();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.grpcsample.util;
+
+import io.grpc.Context;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 每 N 個呼叫抽樣記錄一次日誌，抽樣結果透過 gRPC Context 傳遞給 service，
+ * 讓同一個呼叫的攔截器與 handler 日誌一起出現或一起省略
+ */
+public class LogSampler {
+    // 未經攔截器抽樣的呼叫預設不記錄逐筆日誌
+    private static final Context.Key<Boolean> CALL_SAMPLED = Context.keyWithDefault("log-sampled", Boolean.FALSE);
+
+    private final int sampleRate;
+
+    /**
+     * @param sampleRate 每 sampleRate 個呼叫記錄 1 個，1 表示全部記錄
+     */
+    public LogSampler(int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 決定新呼叫是否記錄日誌，使用 ThreadLocalRandom 避免共享計數器的競爭
+     */
+    public boolean sample() {
+        return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    public static Context markSampled(Context context) {
+        return context.withValue(CALL_SAMPLED, Boolean.TRUE);
+    }
+
+    /**
+     * 目前的呼叫是否被抽樣記錄
+     */
+    public static boolean isCallSampled() {
+        return CALL_SAMPLED.get();
+    }
+}
@@ -0,0 +1,43 @@
+package com.grpcsample.aggregation;
+
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.grpc.StreamSummary;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientStreamAggregatorTest {
+
+    @Test
+    void summarizesSkewedStream() {
+        ClientStreamAggregator aggregator = new ClientStreamAggregator(3, 5);
+        long totalBytes = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // 一半的訊息集中在 3 個名稱，其餘分散在 10000 個名稱 (奇數 i 對 20000 取餘數)
+            String name = i % 2 == 0 ? "hot-" + (i % 3) : "user-" + (i % 20_000);
+            HelloRequest request = HelloRequest.newBuilder().setName(name).build();
+            totalBytes += request.getSerializedSize();
+            aggregator.add(request);
+        }
+
+        StreamSummary summary = aggregator.toSummary();
+        assertEquals(100_000, summary.getMessageCount());
+        assertEquals(totalBytes, summary.getTotalBytes());
+
+        long distinct = summary.getDistinctNamesEstimate();
+        assertTrue(Math.abs(distinct - 10_003) < 10_003 * 0.05, "distinct estimate " + distinct);
+
+        assertEquals(3, summary.getTopNamesCount());
+        summary.getTopNamesList().forEach(top -> assertTrue(top.getName().startsWith("hot-"), top.getName()));
+        assertEquals(5, summary.getSampleNamesCount());
+    }
+
+    @Test
+    void emptyStream() {
+        StreamSummary summary = new ClientStreamAggregator(10, 10).toSummary();
+        assertEquals(0, summary.getMessageCount());
+        assertEquals(0, summary.getDistinctNamesEstimate());
+        assertEquals(0, summary.getTopNamesCount());
+    }
+}
@@ -0,0 +1,59 @@
+package com.grpcsample.cache;
+
+import com.google.protobuf.ByteString;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaffeineReplyCacheTest {
+
+    private static ByteString key(String name) {
+        return HelloRequest.newBuilder().setName(name).build().toByteString();
+    }
+
+    private static HelloReply reply(String name) {
+        return HelloReply.newBuilder().setMessage("Hello, " + name).build();
+    }
+
+    @Test
+    void hitSkipsBuilder() {
+        CaffeineReplyCache cache = new CaffeineReplyCache(1 << 20, 0);
+        AtomicInteger builds = new AtomicInteger();
+
+        CachedReply first = cache.get(key("alice"), () -> {
+            builds.incrementAndGet();
+            return reply("alice");
+        });
+        CachedReply second = cache.get(key("alice"), () -> {
+            builds.incrementAndGet();
+            return reply("alice");
+        });
+
+        assertSame(first, second);
+        assertEquals(1, builds.get());
+        assertEquals(first.reply().toByteString(), first.encoded());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void boundedByBytes() {
+        long maxBytes = 64 * 1024;
+        CaffeineReplyCache cache = new CaffeineReplyCache(maxBytes, 0);
+        for (int i = 0; i < 10_000; i++) {
+            String name = "user-" + i;
+            cache.get(key(name), () -> reply(name));
+        }
+        // Caffeine 在維護階段才淘汰，cleanUp 後大小必定在上限內
+        cache.cleanUp();
+
+        assertTrue(cache.weightedSize() <= maxBytes, "weighted size " + cache.weightedSize());
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+}
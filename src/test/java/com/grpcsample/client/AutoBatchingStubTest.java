@@ -0,0 +1,151 @@
+package com.grpcsample.client;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloBatchReply;
+import com.grpcsample.grpc.HelloBatchRequest;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AutoBatchingStubTest {
+
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private enum Reply {
+        NORMAL,
+        ERROR,
+        ONE_SHORT
+    }
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private volatile Reply mode = Reply.NORMAL;
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        GreetingServiceGrpc.GreetingServiceImplBase service = new GreetingServiceGrpc.GreetingServiceImplBase() {
+            @Override
+            public void sayHelloBatch(HelloBatchRequest request, StreamObserver<HelloBatchReply> responseObserver) {
+                batchSizes.add(request.getRequestsCount());
+                if (mode == Reply.ERROR) {
+                    responseObserver.onError(Status.UNAVAILABLE.withDescription("backend down").asRuntimeException());
+                    return;
+                }
+                HelloBatchReply.Builder reply = HelloBatchReply.newBuilder();
+                int count = mode == Reply.ONE_SHORT ? request.getRequestsCount() - 1 : request.getRequestsCount();
+                for (int i = 0; i < count; i++) {
+                    reply.addReplies(HelloReply.newBuilder().setMessage("Hello, " + request.getRequests(i).getName()));
+                }
+                responseObserver.onNext(reply.build());
+                responseObserver.onCompleted();
+            }
+        };
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).addService(service).build().start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void sendsBatchAsSoonAsItIsFull() throws Exception {
+        try (AutoBatchingStub batching = new AutoBatchingStub(channel, 3, NEVER)) {
+            CompletableFuture<HelloReply> a = batching.sayHello("a");
+            CompletableFuture<HelloReply> b = batching.sayHello("b");
+            CompletableFuture<HelloReply> c = batching.sayHello("c");
+
+            // 每個呼叫取得批次回應中對應位置的回應
+            assertEquals("Hello, a", a.get(5, TimeUnit.SECONDS).getMessage());
+            assertEquals("Hello, b", b.get(5, TimeUnit.SECONDS).getMessage());
+            assertEquals("Hello, c", c.get(5, TimeUnit.SECONDS).getMessage());
+            assertEquals(List.of(3), batchSizes);
+        }
+    }
+
+    @Test
+    void sendsPartialBatchOnceLingerExpires() throws Exception {
+        try (AutoBatchingStub batching = new AutoBatchingStub(channel, 100, Duration.ofMillis(50))) {
+            long start = System.nanoTime();
+            CompletableFuture<HelloReply> a = batching.sayHello("a");
+            CompletableFuture<HelloReply> b = batching.sayHello("b");
+
+            assertEquals("Hello, a", a.get(5, TimeUnit.SECONDS).getMessage());
+            assertEquals("Hello, b", b.get(5, TimeUnit.SECONDS).getMessage());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            assertEquals(List.of(2), batchSizes);
+        }
+    }
+
+    @Test
+    void rpcErrorFailsEveryFutureInTheBatch() {
+        mode = Reply.ERROR;
+        try (AutoBatchingStub batching = new AutoBatchingStub(channel, 2, NEVER)) {
+            CompletableFuture<HelloReply> a = batching.sayHello("a");
+            CompletableFuture<HelloReply> b = batching.sayHello("b");
+
+            assertEquals(Status.Code.UNAVAILABLE, failureCode(a));
+            assertEquals(Status.Code.UNAVAILABLE, failureCode(b));
+        }
+    }
+
+    @Test
+    void replyCountMismatchFailsEveryFutureInTheBatch() {
+        mode = Reply.ONE_SHORT;
+        try (AutoBatchingStub batching = new AutoBatchingStub(channel, 2, NEVER)) {
+            CompletableFuture<HelloReply> a = batching.sayHello("a");
+            CompletableFuture<HelloReply> b = batching.sayHello("b");
+
+            assertEquals(Status.Code.INTERNAL, failureCode(a));
+            assertEquals(Status.Code.INTERNAL, failureCode(b));
+        }
+    }
+
+    @Test
+    void closeSendsPendingRequestsAndRejectsNewOnes() throws Exception {
+        AutoBatchingStub batching = new AutoBatchingStub(channel, 100, NEVER);
+        CompletableFuture<HelloReply> a = batching.sayHello("a");
+        CompletableFuture<HelloReply> b = batching.sayHello("b");
+        assertFalse(a.isDone());
+
+        batching.close();
+
+        assertEquals("Hello, a", a.get(5, TimeUnit.SECONDS).getMessage());
+        assertEquals("Hello, b", b.get(5, TimeUnit.SECONDS).getMessage());
+        assertEquals(List.of(2), batchSizes);
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> batching.sayHello("late").get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    private static Status.Code failureCode(CompletableFuture<HelloReply> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return assertInstanceOf(StatusRuntimeException.class, e.getCause()).getStatus().getCode();
+    }
+}
@@ -0,0 +1,31 @@
+package com.grpcsample.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClientHttp2SettingsTest {
+
+    @Test
+    void readsClientEntriesAndKeepsDefaultsForMissingOnes() {
+        Properties properties = new Properties();
+        properties.setProperty("grpc.client.http2.flow-control-window", "8388608");
+        properties.setProperty("grpc.client.http2.bdp-auto-window", "false");
+        // server 的設定不影響客戶端
+        properties.setProperty("grpc.server.http2.max-header-list-size", "1");
+
+        ClientHttp2Settings settings = ClientHttp2Settings.fromProperties(properties);
+
+        assertEquals(new ClientHttp2Settings(8388608, false,
+                ClientHttp2Settings.DEFAULTS.maxInboundMessageSize(),
+                ClientHttp2Settings.DEFAULTS.maxHeaderListSize()), settings);
+    }
+
+    @Test
+    void loadsApplicationProperties() {
+        assertEquals(ClientHttp2Settings.DEFAULTS, ClientHttp2Settings.load("application.properties"));
+        assertEquals(ClientHttp2Settings.DEFAULTS, ClientHttp2Settings.load("missing.properties"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.grpcsample.client;
+
+import com.grpcsample.config.TlsConfigHelper;
+import com.grpcsample.service.GreetingService;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.unix.DomainSocketAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class DomainSocketClientTest {
+
+    @TempDir
+    Path dir;
+
+    private EventLoopGroup group;
+    private Server server;
+    private GrpcClient client;
+
+    @BeforeEach
+    void requireEpoll() {
+        assumeTrue(Epoll.isAvailable(), "Unix domain sockets need epoll");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (client != null) {
+            client.shutdown();
+        }
+        if (server != null) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (group != null) {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void callsOverUnixTarget(boolean tls) throws Exception {
+        String socket = dir.resolve("grpc.sock").toString();
+        group = new EpollEventLoopGroup(1);
+        NettyServerBuilder builder = NettyServerBuilder.forAddress(new DomainSocketAddress(socket))
+                .bossEventLoopGroup(group)
+                .workerEventLoopGroup(group)
+                .channelType(EpollServerDomainSocketChannel.class)
+                .addService(new GreetingService());
+        if (tls) {
+            builder.sslContext(new TlsConfigHelper(new ClassPathResource("keystore/grpc-server.p12"),
+                    "changeit", "PKCS12", "grpcServer").buildServerSslContext());
+        }
+        server = builder.build().start();
+
+        client = GrpcClient.forTarget("unix://" + socket,
+                tls ? new ClassPathResource("keystore/grpc-server-cert.pem").getFile() : null);
+        assertTrue(client.sayHello("uds").contains("uds"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.grpcsample.client;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FlowCallsTest {
+
+    private Server server;
+    private ManagedChannel channel;
+    private GreetingServiceGrpc.GreetingServiceStub stub;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).addService(new GreetingService()).build().start();
+        channel = InProcessChannelBuilder.forName(name).build();
+        stub = GreetingServiceGrpc.newStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static List<HelloRequest> requests(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> HelloRequest.newBuilder().setName("user-" + i).build())
+                .toList();
+    }
+
+    @Test
+    void unary() throws Exception {
+        HelloReply reply = FlowCalls.unary(stub::sayHello, HelloRequest.newBuilder().setName("alice").build())
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("Hello, alice! - Backend Service - A", reply.getMessage());
+    }
+
+    @Test
+    void serverStreamDeliversOnlyRequestedMessages() throws Exception {
+        HelloRequest request = HelloRequest.newBuilder().setName("alice").setReplyCount(100).build();
+        LinkedBlockingQueue<Object> received = new LinkedBlockingQueue<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+
+        FlowCalls.<HelloReply>serverStream(observer -> stub.sayHellosServerStream(request, observer))
+                .subscribe(new Flow.Subscriber<HelloReply>() {
+                    @Override
+                    public void onSubscribe(Flow.Subscription s) {
+                        subscription[0] = s;
+                        s.request(2);
+                    }
+
+                    @Override
+                    public void onNext(HelloReply item) {
+                        received.add(item);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        received.add(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        received.add("complete");
+                    }
+                });
+
+        received.poll(5, TimeUnit.SECONDS);
+        received.poll(5, TimeUnit.SECONDS);
+        // 沒有更多需求量時不會收到第三則
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+        subscription[0].cancel();
+    }
+
+    @Test
+    void serverStreamCompletes() throws Exception {
+        HelloRequest request = HelloRequest.newBuilder().setName("alice").setReplyCount(100).build();
+        long count = FlowCalls.forEach(
+                FlowCalls.<HelloReply>serverStream(observer -> stub.sayHellosServerStream(request, observer)),
+                4, reply -> { }).get(5, TimeUnit.SECONDS);
+        assertEquals(100, count);
+    }
+
+    @Test
+    void clientStreamSendsEveryRequest() throws Exception {
+        HelloReply reply = FlowCalls.clientStream(stub::sayHellosClientStream, FlowCalls.fromIterable(requests(1000)))
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(1000, reply.getSummary().getMessageCount());
+    }
+
+    @Test
+    void bidiStreamRepliesToEveryRequest() throws Exception {
+        long count = FlowCalls.forEach(
+                FlowCalls.bidiStream(stub::sayHellosBidirectional, FlowCalls.fromIterable(requests(500))),
+                8, reply -> { }).get(5, TimeUnit.SECONDS);
+        assertEquals(500, count);
+    }
+}
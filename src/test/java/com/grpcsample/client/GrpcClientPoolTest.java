@@ -0,0 +1,100 @@
+package com.grpcsample.client;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GrpcClientPoolTest {
+
+    private final List<Server> servers = new ArrayList<>();
+    private final Map<Integer, AtomicInteger> callsByPort = new ConcurrentHashMap<>();
+    private GrpcClientPool pool;
+
+    // 以 port 命名的 in-process server，模擬不同的目標位址
+    private void startServer(int port) throws Exception {
+        AtomicInteger calls = callsByPort.computeIfAbsent(port, p -> new AtomicInteger());
+        servers.add(InProcessServerBuilder.forName("pool-" + port)
+                .directExecutor()
+                .addService(new GreetingServiceGrpc.GreetingServiceImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        calls.incrementAndGet();
+                        responseObserver.onNext(HelloReply.newBuilder().setMessage(String.valueOf(port)).build());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start());
+    }
+
+    private GrpcClientPool newPool(List<String> targets, GrpcClientPool.Selection selection) {
+        return new GrpcClientPool(
+                new GrpcClientPool.Options(targets, 2, selection, GrpcClientPool.Resolver.STATIC, Duration.ZERO),
+                address -> InProcessChannelBuilder.forName("pool-" + address.getPort()).directExecutor().build());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pool != null) {
+            pool.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        for (Server server : servers) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void spreadsCallsAcrossTargets() throws Exception {
+        startServer(1001);
+        startServer(1002);
+        pool = newPool(List.of("127.0.0.1:1001", "127.0.0.1:1002"), GrpcClientPool.Selection.ROUND_ROBIN);
+        assertEquals(4, pool.size());
+
+        GreetingServiceGrpc.GreetingServiceBlockingStub stub = GreetingServiceGrpc.newBlockingStub(pool);
+        for (int i = 0; i < 100; i++) {
+            stub.sayHello(HelloRequest.newBuilder().setName("user").build());
+        }
+
+        assertEquals(50, callsByPort.get(1001).get());
+        assertEquals(50, callsByPort.get(1002).get());
+    }
+
+    @Test
+    void skipsFailedTarget() throws Exception {
+        // 1003 沒有 server，連線會進入 TRANSIENT_FAILURE
+        startServer(1001);
+        pool = newPool(List.of("127.0.0.1:1001", "127.0.0.1:1003"), GrpcClientPool.Selection.LEAST_OUTSTANDING);
+        pool.getState(true);
+
+        GreetingServiceGrpc.GreetingServiceBlockingStub stub = GreetingServiceGrpc.newBlockingStub(pool);
+        int failures = 0;
+        for (int i = 0; i < 100; i++) {
+            try {
+                stub.sayHello(HelloRequest.newBuilder().setName("user").build());
+            } catch (RuntimeException e) {
+                failures++;
+            }
+        }
+
+        // 每個失敗的 channel 最多讓第一次嘗試失敗，之後就被略過
+        assertEquals(100 - failures, callsByPort.get(1001).get());
+        assertTrue(failures <= 2, "failures " + failures);
+    }
+}
@@ -0,0 +1,69 @@
+package com.grpcsample.client;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class LocalServersTest {
+
+    // 沒有任何 Netty server 監聽此 port，呼叫成功代表走 in-process
+    private static final int PORT = 59999;
+
+    private Server server;
+    private GrpcClient client;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        LocalServers.unregister(PORT);
+        if (client != null) {
+            client.shutdown();
+        }
+        if (server != null) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void localTargetUsesInProcessChannelAndPassesMessagesByReference() throws Exception {
+        AtomicReference<HelloRequest> received = new AtomicReference<>();
+        server = InProcessServerBuilder.forName("local-servers-test")
+                .addService(new GreetingServiceGrpc.GreetingServiceImplBase() {
+                    @Override
+                    public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                        received.set(request);
+                        responseObserver.onNext(HelloReply.newBuilder().setMessage("in-process").build());
+                        responseObserver.onCompleted();
+                    }
+                })
+                .build()
+                .start();
+        LocalServers.register(PORT, "local-servers-test");
+
+        client = new GrpcClient("localhost", PORT);
+        assertEquals("in-process", client.sayHello("local"));
+
+        HelloRequest request = HelloRequest.newBuilder().setName("by reference").build();
+        GreetingServiceGrpc.newBlockingStub(client.getChannel()).sayHello(request);
+        assertSame(request, received.get());
+    }
+
+    @Test
+    void onlyLoopbackTargetsAreLocal() {
+        LocalServers.register(PORT, "local-servers-test");
+        assertEquals("local-servers-test", LocalServers.lookup("127.0.0.1", PORT));
+        assertNull(LocalServers.lookup("grpc.example.com", PORT));
+        assertNull(LocalServers.lookup("localhost", PORT + 1));
+    }
+}
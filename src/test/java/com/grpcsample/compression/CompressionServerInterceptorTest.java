@@ -0,0 +1,100 @@
+package com.grpcsample.compression;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloBatchReply;
+import com.grpcsample.grpc.HelloBatchRequest;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.metrics.PrometheusTextWriter;
+import com.grpcsample.service.GreetingService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressionServerInterceptorTest {
+
+    private static final String BATCH = GreetingServiceGrpc.getSayHelloBatchMethod().getFullMethodName();
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (channel != null) {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (server != null) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void compressesOnlyConfiguredMethodsAboveThreshold() throws Exception {
+        CodecRegistry codecs = new CodecRegistry(List.of());
+        CompressionServerInterceptor interceptor = new CompressionServerInterceptor(codecs, "identity", BATCH + "=gzip", 1024);
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                .addService(new GreetingService())
+                .intercept(interceptor)
+                .compressorRegistry(codecs.compressorRegistry())
+                .decompressorRegistry(codecs.decompressorRegistry())
+                .build()
+                .start();
+        channel = NettyChannelBuilder.forAddress("127.0.0.1", server.getPort())
+                .usePlaintext()
+                .intercept(new CompressionClientInterceptor())
+                .build();
+        GreetingServiceGrpc.GreetingServiceBlockingStub stub = GreetingServiceGrpc.newBlockingStub(channel);
+
+        // 未設定壓縮的方法
+        stub.sayHello(HelloRequest.newBuilder().setName("small").build());
+        // 小於門檻的 batch 回應
+        stub.sayHelloBatch(batch(1));
+        assertEquals(0, compressed(codecs));
+
+        HelloBatchReply reply = stub.sayHelloBatch(batch(200));
+        assertEquals(200, reply.getRepliesCount());
+        assertEquals(1, compressed(codecs));
+
+        // 客戶端壓縮的請求由 server 的 registry 解壓縮
+        stub.withCompression("gzip").sayHelloBatch(batch(200));
+        String text = scrape(interceptor);
+        assertTrue(text.contains("grpc_compression_messages_total{codec=\"gzip\",operation=\"decompress\"} 1"), text);
+        assertTrue(text.contains("grpc_server_compression_eligible_messages_total{compressed=\"false\"} 1"), text);
+        assertTrue(text.contains("grpc_compression_ratio{codec=\"gzip\",operation=\"compress\"}"), text);
+    }
+
+    @Test
+    void rejectsUnknownCodecs() {
+        CodecRegistry codecs = new CodecRegistry(List.of());
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompressionServerInterceptor(codecs, "identity", BATCH + "=zstd", 1024));
+    }
+
+    private static HelloBatchRequest batch(int size) {
+        HelloBatchRequest.Builder builder = HelloBatchRequest.newBuilder();
+        for (int i = 0; i < size; i++) {
+            builder.addRequests(HelloRequest.newBuilder().setName("Batch User " + i));
+        }
+        return builder.build();
+    }
+
+    private static long compressed(CodecRegistry codecs) {
+        return ((InstrumentedCodec) codecs.compressorRegistry().lookupCompressor("gzip")).compressStats().messages.sum();
+    }
+
+    private static String scrape(CompressionServerInterceptor interceptor) {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        interceptor.writeMetrics(writer);
+        return writer.toString();
+    }
+}
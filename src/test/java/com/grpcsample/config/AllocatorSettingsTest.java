@@ -0,0 +1,48 @@
+package com.grpcsample.config;
+
+import io.grpc.netty.shaded.io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AllocatorSettingsTest {
+
+    @Test
+    void readsPrefixedEntriesAndKeepsDefaultsForBlankOnes() {
+        Properties properties = new Properties();
+        properties.setProperty("grpc.server.netty.allocator.direct-arenas", "2");
+        properties.setProperty("grpc.server.netty.allocator.chunk-size", "1048576");
+        properties.setProperty("grpc.server.netty.allocator.small-cache-size", "");
+        // 客戶端的設定不影響 server
+        properties.setProperty("grpc.client.netty.allocator.heap-arenas", "7");
+
+        AllocatorSettings settings = AllocatorSettings.fromProperties(properties, "grpc.server.netty.allocator.");
+
+        assertEquals(2, settings.directArenas());
+        assertEquals(1048576, settings.chunkSize());
+        assertEquals(AllocatorSettings.DEFAULTS.heapArenas(), settings.heapArenas());
+        assertEquals(AllocatorSettings.DEFAULTS.smallCacheSize(), settings.smallCacheSize());
+    }
+
+    @Test
+    void rejectsChunkSizeThatIsNotAPowerOfTwoPages() {
+        Properties properties = new Properties();
+        properties.setProperty("allocator.chunk-size", Integer.toString(3 * AllocatorSettings.DEFAULTS.pageSize()));
+
+        assertThrows(IllegalArgumentException.class, () -> AllocatorSettings.fromProperties(properties, "allocator."));
+    }
+
+    @Test
+    void newAllocatorUsesConfiguredArenasAndChunk() {
+        PooledByteBufAllocator allocator = new AllocatorSettings(1, 0, 8192, 64 * 8192, 0, 0, false).newAllocator();
+
+        assertEquals(1, allocator.metric().numDirectArenas());
+        assertEquals(0, allocator.metric().numHeapArenas());
+        assertEquals(64 * 8192, allocator.metric().chunkSize());
+        assertFalse(allocator.metric().directArenas().isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.grpcsample.config;
+
+import com.grpcsample.metrics.PrometheusTextWriter;
+import io.grpc.netty.shaded.io.netty.buffer.ByteBufAllocator;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeystoreWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private KeystoreWatcher watcher;
+
+    @AfterEach
+    void tearDown() {
+        if (watcher != null) {
+            watcher.shutdown();
+        }
+    }
+
+    @Test
+    void swapsContextOnlyWhenKeystoreContentChanges() throws Exception {
+        Path keystore = dir.resolve("grpc-server.p12");
+        byte[] original;
+        try (InputStream in = new ClassPathResource("keystore/grpc-server.p12").getInputStream()) {
+            original = in.readAllBytes();
+        }
+        Files.write(keystore, original);
+        TlsConfigHelper tls = new TlsConfigHelper(new FileSystemResource(keystore), "changeit", "PKCS12", "grpcServer");
+        // interval 0: 不排程，由測試呼叫 reloadIfChanged
+        watcher = new KeystoreWatcher(tls, true, 0);
+
+        SslContext initial = tls.buildServerSslContext();
+        ReloadableSslContext reloadable = assertInstanceOf(ReloadableSslContext.class, watcher.watch(initial));
+        assertSame(initial, reloadable.current());
+        assertTrue(watcher.isWatching());
+        assertTrue(scrape(watcher).contains("grpc_tls_reload_enabled 1"));
+
+        // 只改修改時間，內容相同不重建
+        touch(keystore);
+        assertFalse(watcher.reloadIfChanged());
+        assertSame(initial, reloadable.current());
+
+        // 內容損毀時保留原本的 context
+        Files.write(keystore, new byte[]{1, 2, 3});
+        touch(keystore);
+        assertFalse(watcher.reloadIfChanged());
+        assertSame(initial, reloadable.current());
+        assertEquals(1, watcher.reloadFailures());
+
+        // 以新檔案替換 (與 Kubernetes secret 相同的 rename 方式)
+        Path staged = dir.resolve("staged.p12");
+        Files.write(staged, original);
+        Files.move(staged, keystore, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        touch(keystore);
+        assertTrue(watcher.reloadIfChanged());
+        assertNotSame(initial, reloadable.current());
+        assertEquals(1, watcher.reloadSuccesses());
+        assertNotNull(reloadable.newEngine(ByteBufAllocator.DEFAULT));
+    }
+
+    @Test
+    void returnsInitialContextWhenDisabled() throws Exception {
+        TlsConfigHelper tls = new TlsConfigHelper(new ClassPathResource("keystore/grpc-server.p12"),
+                "changeit", "PKCS12", "grpcServer");
+        watcher = new KeystoreWatcher(tls, false, 10);
+        SslContext initial = tls.buildServerSslContext();
+        assertSame(initial, watcher.watch(initial));
+    }
+
+    @Test
+    void keystoreThatIsNotAFileIsReportedAsNotWatched() throws Exception {
+        byte[] keystore;
+        try (InputStream in = new ClassPathResource("keystore/grpc-server.p12").getInputStream()) {
+            keystore = in.readAllBytes();
+        }
+        // 與 bootJar 內的 classpath: keystore 相同，無法取得檔案
+        TlsConfigHelper tls = new TlsConfigHelper(new ByteArrayResource(keystore), "changeit", "PKCS12", "grpcServer");
+        watcher = new KeystoreWatcher(tls, true, 10);
+        SslContext initial = tls.buildServerSslContext();
+
+        assertSame(initial, watcher.watch(initial));
+        assertFalse(watcher.isWatching());
+        String text = scrape(watcher);
+        assertTrue(text.contains("grpc_tls_reload_enabled 0"), text);
+        assertFalse(text.contains("grpc_tls_reloads_total"), text);
+    }
+
+    private static String scrape(KeystoreWatcher watcher) {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        watcher.writeMetrics(writer);
+        return writer.toString();
+    }
+
+    // 部分檔案系統的修改時間只有秒級精度
+    private static void touch(Path file) {
+        file.toFile().setLastModified(file.toFile().lastModified() + 2000);
+    }
+}
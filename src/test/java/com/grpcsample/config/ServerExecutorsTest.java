@@ -0,0 +1,42 @@
+package com.grpcsample.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServerExecutorsTest {
+
+    @Test
+    void fixedPoolCompensatesForBlockedHandlers() throws Exception {
+        ExecutorService executor = ServerExecutors.create(ServerExecutors.Mode.FIXED, 1);
+        try {
+            CountDownLatch released = new CountDownLatch(1);
+            // 唯一的 worker 阻塞等待第二個任務，需要補償執行緒才能完成
+            Future<Boolean> blocked = executor.submit(() -> {
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        released.await();
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return released.getCount() == 0;
+                    }
+                });
+                return true;
+            });
+            executor.submit(released::countDown);
+            assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.grpcsample.drain;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamDrainerTest {
+
+    private final StreamDrainer drainer = new StreamDrainer();
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        GreetingService service = new GreetingService();
+        service.setStreamDrainer(drainer);
+        server = InProcessServerBuilder.forName("drain-test").addService(service).build().start();
+        channel = InProcessChannelBuilder.forName("drain-test").build();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void idleBidiStreamEndsWithUnavailableAndServerTerminates() throws Exception {
+        BlockingQueue<HelloReply> replies = new LinkedBlockingQueue<>();
+        CompletableFuture<Status> closed = new CompletableFuture<>();
+        StreamObserver<HelloRequest> requests = GreetingServiceGrpc.newStub(channel)
+                .sayHellosBidirectional(observer(replies, closed));
+        requests.onNext(HelloRequest.newBuilder().setName("drain").build());
+        assertNotNull(replies.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, drainer.activeStreams());
+
+        server.shutdown();
+        assertEquals(1, drainer.drain());
+
+        assertEquals(Status.Code.UNAVAILABLE, closed.get(5, TimeUnit.SECONDS).getCode());
+        assertTrue(server.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, drainer.activeStreams());
+    }
+
+    @Test
+    void completedStreamsAreNoLongerTracked() throws Exception {
+        BlockingQueue<HelloReply> replies = new LinkedBlockingQueue<>();
+        CompletableFuture<Status> closed = new CompletableFuture<>();
+        StreamObserver<HelloRequest> requests = GreetingServiceGrpc.newStub(channel)
+                .sayHellosBidirectional(observer(replies, closed));
+        requests.onNext(HelloRequest.newBuilder().setName("done").build());
+        requests.onCompleted();
+
+        assertEquals(Status.Code.OK, closed.get(5, TimeUnit.SECONDS).getCode());
+        assertEquals(1, replies.size());
+        assertEquals(0, drainer.activeStreams());
+        assertEquals(0, drainer.drain());
+    }
+
+    @Test
+    void streamTrackedDuringDrainClosesOnlyAfterSetup() {
+        RecordingObserver observer = new RecordingObserver();
+        drainer.drain();
+
+        DrainableStream stream = drainer.track(observer);
+        assertTrue(stream.isOpen());
+        assertNull(observer.error);
+
+        stream.exit();
+        assertFalse(stream.isOpen());
+        assertEquals(Status.Code.UNAVAILABLE, Status.fromThrowable(observer.error).getCode());
+        assertEquals(0, drainer.activeStreams());
+    }
+
+    @Test
+    void bidiStreamStartedDuringDrainEndsWithUnavailable() throws Exception {
+        drainer.drain();
+
+        BlockingQueue<HelloReply> replies = new LinkedBlockingQueue<>();
+        CompletableFuture<Status> closed = new CompletableFuture<>();
+        StreamObserver<HelloRequest> requests = GreetingServiceGrpc.newStub(channel)
+                .sayHellosBidirectional(observer(replies, closed));
+        requests.onNext(HelloRequest.newBuilder().setName("late").build());
+
+        assertEquals(Status.Code.UNAVAILABLE, closed.get(5, TimeUnit.SECONDS).getCode());
+        assertTrue(replies.isEmpty());
+        assertEquals(0, drainer.activeStreams());
+    }
+
+    private static StreamObserver<HelloReply> observer(BlockingQueue<HelloReply> replies,
+                                                       CompletableFuture<Status> closed) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(HelloReply reply) {
+                replies.add(reply);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                closed.complete(Status.fromThrowable(t));
+            }
+
+            @Override
+            public void onCompleted() {
+                closed.complete(Status.OK);
+            }
+        };
+    }
+
+    private static final class RecordingObserver extends ServerCallStreamObserver<HelloReply> {
+        private Throwable error;
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void onNext(HelloReply value) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
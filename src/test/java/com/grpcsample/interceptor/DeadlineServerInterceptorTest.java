@@ -0,0 +1,65 @@
+package com.grpcsample.interceptor;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DeadlineServerInterceptorTest {
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void rejectsCallsWithTooLittleTimeLeftBeforeTheHandlerRuns() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        GreetingServiceGrpc.GreetingServiceImplBase service = new GreetingServiceGrpc.GreetingServiceImplBase() {
+            @Override
+            public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                handled.incrementAndGet();
+                responseObserver.onNext(HelloReply.newBuilder().setMessage("ok").build());
+                responseObserver.onCompleted();
+            }
+        };
+        server = InProcessServerBuilder.forName("deadline-test")
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(service, new DeadlineServerInterceptor(Duration.ofSeconds(1))))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName("deadline-test").directExecutor().build();
+        GreetingServiceGrpc.GreetingServiceBlockingStub stub = GreetingServiceGrpc.newBlockingStub(channel);
+        HelloRequest request = HelloRequest.newBuilder().setName("deadline").build();
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> stub.withDeadlineAfter(200, TimeUnit.MILLISECONDS).sayHello(request));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+        assertEquals(0, handled.get());
+
+        assertEquals("ok", stub.withDeadlineAfter(5, TimeUnit.SECONDS).sayHello(request).getMessage());
+        // 沒有 deadline 的呼叫不受影響
+        assertEquals("ok", stub.sayHello(request).getMessage());
+        assertEquals(2, handled.get());
+    }
+}
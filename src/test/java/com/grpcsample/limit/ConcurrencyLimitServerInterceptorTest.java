@@ -0,0 +1,128 @@
+package com.grpcsample.limit;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitServerInterceptorTest {
+
+    private static final String SAY_HELLO = GreetingServiceGrpc.getSayHelloMethod().getFullMethodName();
+
+    private final List<StreamObserver<HelloReply>> held = new ArrayList<>();
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void rejectsCallsOverTheLimitAndReleasesPermitsOnClose() throws Exception {
+        ConcurrencyLimitServerInterceptor interceptor =
+                new ConcurrencyLimitServerInterceptor(100, 10, 100, SAY_HELLO + "=2");
+        CountDownLatch started = new CountDownLatch(2);
+        // 前兩個呼叫保持進行中，直到測試送出回應
+        GreetingServiceGrpc.GreetingServiceImplBase service = new GreetingServiceGrpc.GreetingServiceImplBase() {
+            @Override
+            public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+                synchronized (held) {
+                    held.add(responseObserver);
+                }
+                started.countDown();
+            }
+        };
+        server = InProcessServerBuilder.forName("limit-test")
+                .directExecutor()
+                .addService(ServerInterceptors.intercept(service, interceptor))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName("limit-test").directExecutor().build();
+
+        GreetingServiceGrpc.GreetingServiceStub async = GreetingServiceGrpc.newStub(channel);
+        GreetingServiceGrpc.GreetingServiceBlockingStub blocking = GreetingServiceGrpc.newBlockingStub(channel);
+        HelloRequest request = HelloRequest.newBuilder().setName("limit").build();
+        for (int i = 0; i < 2; i++) {
+            async.sayHello(request, new NoopObserver());
+        }
+        started.await(5, TimeUnit.SECONDS);
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class, () -> blocking.sayHello(request));
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+        assertEquals(1, interceptor.forMethod(SAY_HELLO).rejected());
+        assertEquals(2, interceptor.forMethod(SAY_HELLO).inFlight());
+
+        synchronized (held) {
+            for (StreamObserver<HelloReply> observer : held) {
+                observer.onNext(HelloReply.getDefaultInstance());
+                observer.onCompleted();
+            }
+        }
+        assertEquals(0, interceptor.forMethod(SAY_HELLO).inFlight());
+    }
+
+    @Test
+    void expiredDeadlinesShrinkTheAdaptiveLimit() throws Exception {
+        ConcurrencyLimitServerInterceptor interceptor = new ConcurrencyLimitServerInterceptor(100, 10, 100, "");
+        // handler 不回應，呼叫只會因 deadline 到期而結束
+        GreetingServiceGrpc.GreetingServiceImplBase service = new GreetingServiceGrpc.GreetingServiceImplBase() {
+            @Override
+            public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+            }
+        };
+        server = InProcessServerBuilder.forName("limit-deadline-test")
+                .addService(ServerInterceptors.intercept(service, interceptor))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName("limit-deadline-test").build();
+        GreetingServiceGrpc.GreetingServiceBlockingStub blocking = GreetingServiceGrpc.newBlockingStub(channel);
+        HelloRequest request = HelloRequest.newBuilder().setName("timeout").build();
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> blocking.withDeadlineAfter(100, TimeUnit.MILLISECONDS).sayHello(request));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+
+        // server 端的 onCancel 在客戶端收到錯誤後才可能執行
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (interceptor.forMethod(SAY_HELLO).inFlight() > 0 && System.nanoTime() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, interceptor.forMethod(SAY_HELLO).inFlight());
+        assertTrue(interceptor.forMethod(SAY_HELLO).getLimit() < 100,
+                "limit " + interceptor.forMethod(SAY_HELLO).getLimit());
+    }
+
+    private static final class NoopObserver implements StreamObserver<HelloReply> {
+        @Override
+        public void onNext(HelloReply value) {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.grpcsample.limit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Gradient2LimitTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void growsWhileLatencyIsStableAndShrinksWhenItRises() {
+        Gradient2Limit limit = new Gradient2Limit(20, 10, 200);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(10 * MS, limit.getLimit(), false);
+        }
+        int grown = limit.getLimit();
+        assertTrue(grown > 20, "limit should grow, was " + grown);
+
+        // 延遲變為 4 倍代表開始排隊
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(40 * MS, limit.getLimit(), false);
+        }
+        assertTrue(limit.getLimit() < grown / 2, "limit should shrink, was " + limit.getLimit());
+    }
+
+    @Test
+    void ignoresSamplesWhenMostlyIdleAndStaysInRange() {
+        Gradient2Limit limit = new Gradient2Limit(50, 10, 60);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(10 * MS, 1, false);
+        }
+        assertEquals(50, limit.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(10 * MS, limit.getLimit(), false);
+        }
+        assertEquals(60, limit.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limit.onSample(10 * MS, limit.getLimit(), true);
+        }
+        assertEquals(10, limit.getLimit());
+    }
+}
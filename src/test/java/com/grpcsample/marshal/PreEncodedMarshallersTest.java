@@ -0,0 +1,50 @@
+package com.grpcsample.marshal;
+
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreEncodedMarshallersTest {
+
+    @Test
+    void lazyRequestParsesOnDemand() {
+        HelloRequest request = HelloRequest.newBuilder().setName("alice").setReplyCount(3).build();
+        MethodDescriptor.Marshaller<LazyMessage<HelloRequest>> marshaller =
+                PreEncodedMarshallers.lazy(HelloRequest.parser());
+
+        LazyMessage<HelloRequest> lazy = marshaller.parse(new ByteArrayInputStream(request.toByteArray()));
+
+        assertEquals(request.toByteString(), lazy.bytes());
+        assertFalse(lazy.isParsed());
+        assertEquals(request, lazy.get());
+        assertTrue(lazy.isParsed());
+    }
+
+    @Test
+    void encodedReplyWritesSameBytesAsProtobuf() throws IOException {
+        HelloReply reply = HelloReply.newBuilder().setMessage("Hello, alice").build();
+        MethodDescriptor.Marshaller<EncodedMessage<HelloReply>> marshaller =
+                PreEncodedMarshallers.encoded(HelloReply.getDefaultInstance());
+
+        InputStream stream = marshaller.stream(EncodedMessage.ofBytes(reply.toByteString()));
+        assertEquals(reply.getSerializedSize(), ((KnownLength) stream).available());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((Drainable) stream).drainTo(out);
+        assertArrayEquals(reply.toByteArray(), out.toByteArray());
+
+        assertEquals(reply, marshaller.parse(marshaller.stream(EncodedMessage.of(reply))).message());
+    }
+}
@@ -0,0 +1,30 @@
+package com.grpcsample.metrics;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.service.GreetingService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GrpcServerMetricsTest {
+
+    @Test
+    void unregisteredPathsShareTheUnknownBucket() {
+        GrpcServerMetrics metrics = new GrpcServerMetrics();
+        metrics.register(new GreetingService().bindService());
+        String sayHello = GreetingServiceGrpc.getSayHelloMethod().getFullMethodName();
+
+        assertSame(metrics.forMethod(sayHello), metrics.lookup(sayHello));
+        assertSame(metrics.lookup("evil.Service/a"), metrics.lookup("evil.Service/b"));
+        metrics.lookup("evil.Service/a").wireBytesReceived.add(10);
+
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        metrics.writeMetrics(writer);
+        String scrape = writer.toString();
+        assertTrue(scrape.contains("grpc_server_wire_bytes_received_total{grpc_method=\"unknown\"} 10"), scrape);
+        assertTrue(scrape.contains("grpc_method=\"" + sayHello + "\""));
+        assertFalse(scrape.contains("evil.Service"));
+    }
+}
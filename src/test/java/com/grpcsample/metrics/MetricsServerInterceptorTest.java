@@ -0,0 +1,106 @@
+package com.grpcsample.metrics;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsServerInterceptorTest {
+
+    private Server server;
+    private ManagedChannel channel;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void expiredServerDeadlineIsRecordedAsDeadlineExceeded() throws Exception {
+        // handler 不回應，呼叫只會因 deadline 到期而結束
+        GreetingServiceGrpc.GreetingServiceImplBase service = new GreetingServiceGrpc.GreetingServiceImplBase() {
+            @Override
+            public void sayHello(HelloRequest request, StreamObserver<HelloReply> responseObserver) {
+            }
+        };
+        GrpcServerMetrics metrics = new GrpcServerMetrics();
+        server = InProcessServerBuilder.forName("metrics-deadline-test")
+                .addService(ServerInterceptors.intercept(service, new MetricsServerInterceptor(metrics)))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName("metrics-deadline-test").build();
+
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> GreetingServiceGrpc.newBlockingStub(channel)
+                        .withDeadlineAfter(100, TimeUnit.MILLISECONDS)
+                        .sayHello(HelloRequest.newBuilder().setName("slow").build()));
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, e.getStatus().getCode());
+
+        String expected = "grpc_server_handled_total{grpc_method=\""
+                + GreetingServiceGrpc.getSayHelloMethod().getFullMethodName() + "\",grpc_code=\"DEADLINE_EXCEEDED\"} 1";
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String scrape;
+        do {
+            PrometheusTextWriter writer = new PrometheusTextWriter();
+            metrics.writeMetrics(writer);
+            scrape = writer.toString();
+        } while (!scrape.contains(expected) && System.nanoTime() < waitUntil);
+        assertTrue(scrape.contains(expected), scrape);
+    }
+
+    @Test
+    void recordsMessagesPerStream() throws Exception {
+        GrpcServerMetrics metrics = new GrpcServerMetrics();
+        server = InProcessServerBuilder.forName("metrics-stream-test")
+                .addService(ServerInterceptors.intercept(new GreetingService(), new MetricsServerInterceptor(metrics)))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName("metrics-stream-test").build();
+
+        Iterator<HelloReply> replies = GreetingServiceGrpc.newBlockingStub(channel)
+                .sayHellosServerStream(HelloRequest.newBuilder().setName("count").setReplyCount(20).build());
+        int count = 0;
+        while (replies.hasNext()) {
+            replies.next();
+            count++;
+        }
+        assertEquals(20, count);
+
+        String method = GreetingServiceGrpc.getSayHellosServerStreamMethod().getFullMethodName();
+        String sent = "grpc_server_msg_sent_per_stream_bucket{grpc_method=\"" + method + "\",le=\"64\"} 1";
+        String notYet = "grpc_server_msg_sent_per_stream_bucket{grpc_method=\"" + method + "\",le=\"16\"} 0";
+        String received = "grpc_server_msg_received_per_stream_sum{grpc_method=\"" + method + "\"} 1";
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String scrape;
+        do {
+            PrometheusTextWriter writer = new PrometheusTextWriter();
+            metrics.writeMetrics(writer);
+            scrape = writer.toString();
+        } while (!scrape.contains(sent) && System.nanoTime() < waitUntil);
+        assertTrue(scrape.contains(sent), scrape);
+        assertTrue(scrape.contains(notYet), scrape);
+        assertTrue(scrape.contains(received), scrape);
+        // unary 呼叫不記錄分布
+        assertFalse(scrape.contains("grpc_server_msg_sent_per_stream_count{grpc_method=\""
+                + GreetingServiceGrpc.getSayHelloMethod().getFullMethodName() + "\"}"), scrape);
+    }
+}
@@ -0,0 +1,80 @@
+package com.grpcsample.metrics;
+
+import com.grpcsample.client.ClientSslContexts;
+import com.grpcsample.config.TlsConfigHelper;
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloRequest;
+import com.grpcsample.service.GreetingService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TlsHandshakeMetricsTest {
+
+    private Server server;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (server != null) {
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = SslProvider.class, names = {"JDK", "OPENSSL"})
+    void reconnectWithSharedClientContextResumesSession(SslProvider provider) throws Exception {
+        TlsHandshakeMetrics metrics = new TlsHandshakeMetrics();
+        TlsConfigHelper tls = new TlsConfigHelper(new ClassPathResource("keystore/grpc-server.p12"),
+                "changeit", "PKCS12", "grpcServer");
+        tls.setProvider(provider.name());
+        server = NettyServerBuilder.forAddress(new InetSocketAddress("127.0.0.1", 0))
+                .addService(new GreetingService())
+                .sslContext(metrics.instrument(tls.buildServerSslContext()))
+                .addTransportFilter(metrics.transportFilter())
+                .build()
+                .start();
+
+        SslContext clientContext;
+        try (InputStream cert = new ClassPathResource("keystore/grpc-server-cert.pem").getInputStream()) {
+            clientContext = ClientSslContexts.forTrustedCert(cert, provider);
+        }
+        for (int i = 0; i < 3; i++) {
+            ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", server.getPort())
+                    .sslContext(clientContext)
+                    .build();
+            try {
+                GreetingServiceGrpc.newBlockingStub(channel)
+                        .sayHello(HelloRequest.newBuilder().setName("tls").build());
+            } finally {
+                channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            }
+        }
+
+        // TLS 1.3 的 ticket 在 BoringSSL 客戶端只用一次，之後可能交替出現完整握手
+        assertTrue(metrics.resumedHandshakes() >= 1);
+        assertEquals(3, metrics.fullHandshakes() + metrics.resumedHandshakes());
+        assertEquals(0, metrics.failedHandshakes());
+        String text = scrape(metrics);
+        assertTrue(text.contains("grpc_tls_handshake_seconds_count{type=\"full\"} " + metrics.fullHandshakes()), text);
+    }
+
+    private static String scrape(MetricsSource source) {
+        PrometheusTextWriter writer = new PrometheusTextWriter();
+        source.writeMetrics(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,162 @@
+package com.grpcsample.service;
+
+import com.grpcsample.grpc.GreetingServiceGrpc;
+import com.grpcsample.grpc.HelloBatchReply;
+import com.grpcsample.grpc.HelloBatchRequest;
+import com.grpcsample.grpc.HelloReply;
+import com.grpcsample.grpc.HelloRequest;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * lock-free 串流 handler 的手動 flow control：客戶端停止讀取時 server 停止要求新的請求，恢復後全部依序送達
+ *
+ * <p>in-process transport 只在客戶端要求了訊息時才回報 ready，因此暫停的行為是確定的。
+ */
+class GreetingServiceFlowControlTest {
+
+    private static final int WINDOW = 4;
+    private static final int MESSAGES = 40;
+
+    // 已交給 handler 的請求數
+    private final AtomicInteger received = new AtomicInteger();
+    private Server server;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        GreetingService service = new GreetingService();
+        service.setBidiMode("lock-free");
+        service.setBidiInboundWindow(WINDOW);
+        ServerInterceptor counting = new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+                    ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+                return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(call, headers)) {
+                    @Override
+                    public void onMessage(ReqT message) {
+                        received.incrementAndGet();
+                        super.onMessage(message);
+                    }
+                };
+            }
+        };
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+                .addService(ServerInterceptors.intercept(service, counting))
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(name).build();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void bidiPausesInboundWhileClientStallsAndDeliversAllRepliesInOrder() throws Exception {
+        StalledReader<HelloRequest, HelloReply> reader = new StalledReader<>();
+        StreamObserver<HelloRequest> requests = GreetingServiceGrpc.newStub(channel).sayHellosBidirectional(reader);
+        for (int i = 0; i < MESSAGES; i++) {
+            requests.onNext(HelloRequest.newBuilder().setName("user-" + i).build());
+        }
+        requests.onCompleted();
+
+        List<String> replies = reader.resumeAfterStall(HelloReply::getMessage);
+
+        assertEquals(IntStream.range(0, MESSAGES)
+                .mapToObj(i -> "Bidirectional stream response #" + i + " for user-" + i)
+                .toList(), replies);
+    }
+
+    @Test
+    void batchStreamPausesInboundWhileClientStallsAndDeliversAllRepliesInOrder() throws Exception {
+        StalledReader<HelloBatchRequest, HelloBatchReply> reader = new StalledReader<>();
+        StreamObserver<HelloBatchRequest> requests = GreetingServiceGrpc.newStub(channel).sayHellosBatchStream(reader);
+        for (int i = 0; i < MESSAGES; i++) {
+            requests.onNext(HelloBatchRequest.newBuilder()
+                    .addRequests(HelloRequest.newBuilder().setName("user-" + i))
+                    .build());
+        }
+        requests.onCompleted();
+
+        List<String> replies = reader.resumeAfterStall(reply -> reply.getReplies(0).getMessage());
+
+        assertEquals(IntStream.range(0, MESSAGES)
+                .mapToObj(i -> "Hello, user-" + i + "! - Backend Service - A")
+                .toList(), replies);
+    }
+
+    /**
+     * 一開始不讀取任何回應，確認 server 只收到 WINDOW 個請求後，再要求所有回應
+     */
+    private final class StalledReader<ReqT, RespT> implements ClientResponseObserver<ReqT, RespT> {
+        private final AtomicReference<ClientCallStreamObserver<ReqT>> call = new AtomicReference<>();
+        private final List<RespT> replies = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+            requestStream.disableAutoRequestWithInitial(0);
+            call.set(requestStream);
+        }
+
+        @Override
+        public void onNext(RespT value) {
+            replies.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            done.completeExceptionally(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            done.complete(null);
+        }
+
+        List<String> resumeAfterStall(Function<RespT, String> message) throws Exception {
+            long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (received.get() < WINDOW && System.nanoTime() < waitUntil) {
+                Thread.sleep(10);
+            }
+            // 客戶端沒有讀取時，server 不會要求超過初始 window 的請求
+            Thread.sleep(200);
+            assertEquals(WINDOW, received.get());
+            assertEquals(0, replies.size());
+
+            call.get().request(Integer.MAX_VALUE);
+            done.get(5, TimeUnit.SECONDS);
+            assertEquals(MESSAGES, received.get());
+            return replies.stream().map(message).toList();
+        }
+    }
+}